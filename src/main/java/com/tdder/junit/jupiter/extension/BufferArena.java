@@ -0,0 +1,57 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Direct buffers owned by a registry. Their native memory is freed together at teardown.
+ */
+class BufferArena implements TeardownGroup {
+
+    private final List<ByteBuffer> buffers_ = new ArrayList<>();
+
+    private long releasedBytes_;
+
+    ByteBuffer allocateDirect(final int capacity) {
+        return add(ByteBuffer.allocateDirect(capacity));
+    }
+
+    <T extends ByteBuffer> T add(final T buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("not a direct buffer: " + buffer);
+        }
+        buffers_.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * @return native bytes released by {@link #close()}
+     */
+    long releasedBytes() {
+        return releasedBytes_;
+    }
+
+    @Override
+    public void close(final TeardownEvents events) throws Exception {
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+        // in reverse order, same as other teardown objects.
+        for (int i = buffers_.size() - 1; 0 <= i; i--) {
+            final ByteBuffer buffer = buffers_.get(i);
+            final long start = events.closing(buffer);
+            try {
+                if (BufferCleaner.clean(buffer)) {
+                    releasedBytes_ += buffer.capacity();
+                }
+            } catch (final Exception e) {
+                events.failed(buffer, start, e);
+                exceptionHandler.add(e);
+                continue;
+            }
+            events.closed(buffer, start);
+        }
+        buffers_.clear();
+        exceptionHandler.throwIfNeeded();
+    }
+
+}
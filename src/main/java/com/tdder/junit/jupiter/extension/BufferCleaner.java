@@ -0,0 +1,97 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the native memory of direct buffers, without waiting for GC.
+ *
+ * <ul>
+ *     <li>Java 9 or later: {@code sun.misc.Unsafe#invokeCleaner(ByteBuffer)}</li>
+ *     <li>Java 8: {@code sun.nio.ch.DirectBuffer#cleaner()} and {@code sun.misc.Cleaner#clean()}</li>
+ * </ul>
+ *
+ * <p>If neither is available, buffers are left to GC.</p>
+ */
+final class BufferCleaner {
+
+    /*
+     * (ByteBuffer)void. null if not available.
+     */
+    private static final MethodHandle CLEAN = findClean();
+
+    private BufferCleaner() {
+    }
+
+    /**
+     * @return {@code true} if the native memory was freed
+     */
+    static boolean clean(final ByteBuffer buffer) throws Exception {
+        if (CLEAN == null || !buffer.isDirect()) {
+            return false;
+        }
+        try {
+            CLEAN.invokeExact(buffer);
+            return true;
+        } catch (final IllegalArgumentException e) {
+            // slice or duplicate. the memory is owned by another buffer.
+            return false;
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static boolean isAvailable() {
+        return CLEAN != null;
+    }
+
+    private static MethodHandle findClean() {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            // Java 9+
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return lookup.unreflect(invokeCleaner).bindTo(theUnsafe.get(null));
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            // fall through
+        }
+        try {
+            // Java 8
+            final Class<?> directBufferClass = Class.forName("sun.nio.ch.DirectBuffer");
+            final Method cleanerMethod = directBufferClass.getMethod("cleaner");
+            final Method cleanMethod = cleanerMethod.getReturnType().getMethod("clean");
+            final MethodHandle cleaner = lookup.unreflect(cleanerMethod);
+            final MethodHandle clean = lookup.unreflect(cleanMethod);
+            // slices and duplicates have no cleaner
+            final MethodHandle nonNull = MethodHandles.guardWithTest(
+                    lookup.findStatic(BufferCleaner.class, "isNonNull",
+                            MethodType.methodType(boolean.class, Object.class))
+                            .asType(MethodType.methodType(boolean.class, cleanerMethod.getReturnType())),
+                    clean,
+                    lookup.findStatic(BufferCleaner.class, "rejectShared",
+                            MethodType.methodType(void.class, Object.class))
+                            .asType(MethodType.methodType(void.class, cleanerMethod.getReturnType())));
+            return MethodHandles.filterArguments(nonNull, 0,
+                    cleaner.asType(MethodType.methodType(cleanerMethod.getReturnType(), ByteBuffer.class)));
+        } catch (final ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean isNonNull(final Object o) {
+        return o != null;
+    }
+
+    private static void rejectShared(final Object cleaner) {
+        throw new IllegalArgumentException("buffer is a slice or duplicate");
+    }
+
+}
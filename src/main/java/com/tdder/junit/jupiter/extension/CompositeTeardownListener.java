@@ -0,0 +1,119 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatches events to listeners.
+ *
+ * <p>An exception thrown by a listener is not a failure of the teardown object, and does not stop other listeners.
+ * The first one of each listener is kept, and reported by {@link #failures()}.</p>
+ */
+class CompositeTeardownListener implements TeardownListener {
+
+    private final TeardownListener[] listeners_;
+
+    /*
+     * First failure of each listener, at the same index as listeners_. Guarded by this.
+     */
+    private final RuntimeException[] firstFailures_;
+
+    /*
+     * Guarded by this.
+     */
+    private final int[] failureCounts_;
+
+    private CompositeTeardownListener(final TeardownListener[] listeners) {
+        listeners_ = listeners;
+        firstFailures_ = new RuntimeException[listeners.length];
+        failureCounts_ = new int[listeners.length];
+    }
+
+    /**
+     * @return {@code null} if no listener, to skip dispatching entirely
+     */
+    static CompositeTeardownListener of(final List<TeardownListener> listeners) {
+        if (listeners.isEmpty()) {
+            return null;
+        }
+        return new CompositeTeardownListener(listeners.toArray(new TeardownListener[0]));
+    }
+
+    @Override
+    public void registered(final String scopeId, final Object task) {
+        for (int i = 0; i < listeners_.length; i++) {
+            try {
+                listeners_[i].registered(scopeId, task);
+            } catch (final RuntimeException e) {
+                listenerFailed(i, e);
+            }
+        }
+    }
+
+    @Override
+    public void closing(final String scopeId, final Object task) {
+        for (int i = 0; i < listeners_.length; i++) {
+            try {
+                listeners_[i].closing(scopeId, task);
+            } catch (final RuntimeException e) {
+                listenerFailed(i, e);
+            }
+        }
+    }
+
+    @Override
+    public void closed(final String scopeId, final Object task, final long durationNanos) {
+        for (int i = 0; i < listeners_.length; i++) {
+            try {
+                listeners_[i].closed(scopeId, task, durationNanos);
+            } catch (final RuntimeException e) {
+                listenerFailed(i, e);
+            }
+        }
+    }
+
+    @Override
+    public void failed(final String scopeId, final Object task, final long durationNanos,
+            final Exception exception) {
+        for (int i = 0; i < listeners_.length; i++) {
+            try {
+                listeners_[i].failed(scopeId, task, durationNanos, exception);
+            } catch (final RuntimeException e) {
+                listenerFailed(i, e);
+            }
+        }
+    }
+
+    @Override
+    public void teardownEnded(final String scopeId) {
+        for (int i = 0; i < listeners_.length; i++) {
+            try {
+                listeners_[i].teardownEnded(scopeId);
+            } catch (final RuntimeException e) {
+                listenerFailed(i, e);
+            }
+        }
+    }
+
+    private synchronized void listenerFailed(final int index, final RuntimeException e) {
+        if (firstFailures_[index] == null) {
+            firstFailures_[index] = e;
+        }
+        failureCounts_[index]++;
+    }
+
+    /**
+     * @return one exception for each listener which threw exceptions, caused by the first one
+     */
+    synchronized List<Exception> failures() {
+        final List<Exception> failures = new ArrayList<>();
+        for (int i = 0; i < listeners_.length; i++) {
+            if (firstFailures_[i] != null) {
+                failures.add(new IllegalStateException("TeardownListener " + listeners_[i].getClass().getName()
+                        + " threw " + failureCounts_[i] + " exception(s)", firstFailures_[i]));
+            }
+        }
+        return failures;
+    }
+
+}
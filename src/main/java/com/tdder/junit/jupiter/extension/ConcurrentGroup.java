@@ -0,0 +1,150 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Executes independent teardown objects concurrently.
+ *
+ * <p>If history is enabled, teardown objects which took longest in previous runs are started first,
+ * so that the slowest one does not start last and determine the duration of the whole group.
+ * Otherwise they are started in reverse order of registration.</p>
+ *
+ * <p>At most {@code parallelism} teardown objects are executed at a time, and the next one is started when one
+ * ends. The executor itself is unbounded, so that the start order is decided here.</p>
+ */
+class ConcurrentGroup implements TeardownGroup {
+
+    private final List<Member> members_ = new ArrayList<>();
+
+    private final ExecutorService executor_;
+
+    private final int parallelism_;
+
+    /*
+     * null if history is disabled.
+     */
+    private final TeardownHistory history_;
+
+    ConcurrentGroup(final ExecutorService executor, final int parallelism, final TeardownHistory history) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        executor_ = executor;
+        parallelism_ = parallelism;
+        history_ = history;
+    }
+
+    void add(final AutoCloseable task) {
+        // the stack is walked only when history is kept.
+        final String key = history_ != null ? TeardownHistory.key(task, TeardownHistory.registrationSite()) : null;
+        members_.add(new Member(task, key));
+    }
+
+    @Override
+    public void close(final TeardownEvents events) throws Exception {
+        final List<Member> members = new ArrayList<>(members_);
+        members_.clear();
+        Collections.reverse(members);
+        if (history_ != null) {
+            for (final Member member : members) {
+                member.estimate_ = history_.estimate(member.key_);
+            }
+            // stable sort. unknown ones keep reverse order of registration.
+            members.sort(Comparator.comparingLong((Member member) -> member.estimate_).reversed());
+        }
+
+        final CompletionService<Void> completion = new ExecutorCompletionService<>(executor_);
+        final List<Future<Void>> futures = new ArrayList<>(members.size());
+        try {
+            for (final Member member : members) {
+                if (parallelism_ <= futures.size()) {
+                    // wait for one to end, before starting the next one.
+                    completion.take();
+                }
+                futures.add(submit(completion, member, events));
+            }
+        } catch (final InterruptedException e) {
+            cancel(futures);
+            throw e;
+        }
+
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    exceptionHandler.add((Exception) cause);
+                } else {
+                    exceptionHandler.add(e);
+                }
+            } catch (final InterruptedException e) {
+                cancel(futures);
+                throw e;
+            }
+        }
+        exceptionHandler.throwIfNeeded();
+    }
+
+    private static void cancel(final List<Future<Void>> futures) {
+        for (final Future<Void> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    private static Future<Void> submit(final CompletionService<Void> completion, final Member member,
+            final TeardownEvents events) {
+        return completion.submit(() -> {
+            member.close(events);
+            return null;
+        });
+    }
+
+    private class Member {
+
+        private final AutoCloseable task_;
+
+        /*
+         * null if history is disabled.
+         */
+        private final String key_;
+
+        private long estimate_;
+
+        Member(final AutoCloseable task, final String key) {
+            task_ = task;
+            key_ = key;
+        }
+
+        void close(final TeardownEvents events) throws Exception {
+            final long eventStart = events.closing(task_);
+            final long start = history_ != null ? System.nanoTime() : 0L;
+            try {
+                task_.close();
+            } catch (final Exception e) {
+                record(start);
+                events.failed(task_, eventStart, e);
+                throw e;
+            }
+            record(start);
+            events.closed(task_, eventStart);
+        }
+
+        private void record(final long start) {
+            if (history_ != null) {
+                history_.record(key_, System.nanoTime() - start);
+            }
+        }
+
+    }
+
+}
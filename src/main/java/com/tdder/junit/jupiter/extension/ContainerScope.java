@@ -0,0 +1,34 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the {@link TeardownRegistry} of the test class, instead of the one of each test.
+ *
+ * <p>Teardown objects are executed after all tests of the class. For a {@code @Nested} class, this is the registry
+ * of the nested class itself, so a fixture shared by the tests of one nested group lives exactly as long as
+ * the group.</p>
+ *
+ * <pre>
+ * &#064;Nested
+ * class WithServer {
+ *
+ *     &#064;ContainerScope
+ *     TeardownRegistry groupTeardown;
+ * }
+ * </pre>
+ *
+ * <p>For an instance field, the class is the class of the test instance. For a parameter, the class is
+ * the test class of the test or container.</p>
+ *
+ * @author manhole
+ */
+@Documented
+@Target({ ElementType.FIELD, ElementType.PARAMETER })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ContainerScope {
+}
@@ -0,0 +1,58 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Teardown object which deletes a file or a directory recursively.
+ *
+ * <p>Sibling subdirectories are deleted in parallel.</p>
+ *
+ * <p>This is serializable, so it can be registered by {@link TeardownRegistry#addDurable(AutoCloseable)}.</p>
+ *
+ * <pre>
+ * final Path dir = Files.createTempDirectory("test");
+ * teardownRegistry.addDurable(DeletePath.of(dir));
+ * </pre>
+ *
+ * @author manhole
+ */
+public final class DeletePath implements AutoCloseable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // java.nio.file.Path is not serializable
+    private final String path;
+
+    private DeletePath(final String path) {
+        this.path = path;
+    }
+
+    /**
+     * @param path file or directory to delete
+     * @return teardown object
+     */
+    public static DeletePath of(final Path path) {
+        return new DeletePath(path.toAbsolutePath().toString());
+    }
+
+    /**
+     * @return file or directory to delete
+     */
+    public Path path() {
+        return Paths.get(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        PathDeleter.delete(path());
+    }
+
+    @Override
+    public String toString() {
+        return "DeletePath{" + path + "}";
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Snapshot of a directory, which restores the directory when closed.
+ *
+ * <p>The directory is copied once. Restoration compares the files with the snapshot by size, modification time and
+ * file key, and copies back only the files which were modified, added or deleted.
+ * So the cost of restoration scales with the changes, not with the size of the directory.</p>
+ *
+ * <p>The copy is made next to the directory, so that it is on the same file system.
+ * It is deleted at the teardown of the registry which took the snapshot.</p>
+ *
+ * @see TeardownRegistry#snapshotDirectory(Path)
+ * @author manhole
+ */
+public final class DirectorySnapshot implements AutoCloseable {
+
+    private static final LinkOption[] NOFOLLOW_LINKS = { LinkOption.NOFOLLOW_LINKS };
+
+    private final Path directory_;
+
+    private final Path copy_;
+
+    /*
+     * Attributes of the files in the directory by relative path, as of the last restoration.
+     * Sorted, so that a parent directory comes before its children. Guarded by this.
+     */
+    private final Map<Path, Entry> entries_ = new TreeMap<>();
+
+    private DirectorySnapshot(final Path directory, final Path copy) {
+        directory_ = directory;
+        copy_ = copy;
+    }
+
+    static DirectorySnapshot take(final Path directory) throws IOException {
+        final Path dir = directory.toAbsolutePath();
+        if (!Files.isDirectory(dir, NOFOLLOW_LINKS)) {
+            throw new NoSuchFileException(dir.toString(), null, "not a directory");
+        }
+        final Path copy = Files.createTempDirectory(dir.getParent(), dir.getFileName() + ".snapshot");
+        final DirectorySnapshot snapshot = new DirectorySnapshot(dir, copy);
+        try {
+            snapshot.copyAll();
+        } catch (final IOException | RuntimeException e) {
+            try {
+                PathDeleter.delete(copy);
+            } catch (final IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return directory to restore
+     */
+    public Path directory() {
+        return directory_;
+    }
+
+    /**
+     * @return copy of the directory
+     */
+    Path copy() {
+        return copy_;
+    }
+
+    private synchronized void copyAll() throws IOException {
+        Files.walkFileTree(directory_, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+                if (!dir.equals(directory_)) {
+                    Files.createDirectory(copy_.resolve(directory_.relativize(dir)));
+                    entries_.put(directory_.relativize(dir), Entry.DIRECTORY);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                final Path relative = directory_.relativize(file);
+                Files.copy(file, copy_.resolve(relative), StandardCopyOption.COPY_ATTRIBUTES,
+                        LinkOption.NOFOLLOW_LINKS);
+                entries_.put(relative, Entry.of(attrs));
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+    }
+
+    /**
+     * Restores the directory to the snapshot.
+     *
+     * @throws IOException if failed to restore
+     */
+    public synchronized void restore() throws IOException {
+        final Set<Path> present = new HashSet<>();
+        Files.createDirectories(directory_);
+        // delete or copy back what differs
+        Files.walkFileTree(directory_, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+                if (dir.equals(directory_)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                final Path relative = directory_.relativize(dir);
+                if (entries_.get(relative) != Entry.DIRECTORY) {
+                    // added, or replaced a file
+                    PathDeleter.delete(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                present.add(relative);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                final Path relative = directory_.relativize(file);
+                final Entry entry = entries_.get(relative);
+                if (entry == null || entry == Entry.DIRECTORY) {
+                    // added, or replaced a directory
+                    Files.delete(file);
+                } else {
+                    if (!entry.equals(Entry.of(attrs))) {
+                        copyBack(relative);
+                    }
+                    present.add(relative);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+        // copy back what was deleted. parents first
+        for (final Map.Entry<Path, Entry> e : entries_.entrySet()) {
+            final Path relative = e.getKey();
+            if (present.contains(relative)) {
+                continue;
+            }
+            if (e.getValue() == Entry.DIRECTORY) {
+                Files.createDirectory(directory_.resolve(relative));
+            } else {
+                copyBack(relative);
+            }
+        }
+    }
+
+    private void copyBack(final Path relative) throws IOException {
+        final Path target = directory_.resolve(relative);
+        Files.copy(copy_.resolve(relative), target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+        // a copied file is a new file, with another file key.
+        entries_.put(relative, Entry.of(Files.readAttributes(target, BasicFileAttributes.class, NOFOLLOW_LINKS)));
+    }
+
+    /**
+     * Restores the directory.
+     */
+    @Override
+    public void close() throws IOException {
+        restore();
+    }
+
+    @Override
+    public String toString() {
+        return "DirectorySnapshot{" + directory_ + "}";
+    }
+
+    /**
+     * Attributes to find modified files.
+     */
+    private static final class Entry {
+
+        static final Entry DIRECTORY = new Entry(-1L, null, null);
+
+        private final long size_;
+
+        private final FileTime lastModifiedTime_;
+
+        /*
+         * null if the file system does not support it.
+         */
+        private final Object fileKey_;
+
+        private Entry(final long size, final FileTime lastModifiedTime, final Object fileKey) {
+            size_ = size;
+            lastModifiedTime_ = lastModifiedTime;
+            fileKey_ = fileKey;
+        }
+
+        static Entry of(final BasicFileAttributes attrs) {
+            return new Entry(attrs.size(), attrs.lastModifiedTime(), attrs.fileKey());
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry other = (Entry) obj;
+            return size_ == other.size_ && Objects.equals(lastModifiedTime_, other.lastModifiedTime_)
+                    && Objects.equals(fileKey_, other.fileKey_);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size_, lastModifiedTime_, fileKey_);
+        }
+
+    }
+
+}
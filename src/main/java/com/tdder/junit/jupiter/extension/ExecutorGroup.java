@@ -0,0 +1,69 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shuts down executors together.
+ *
+ * <p>All executors are shut down first, and then their terminations are waited against one shared deadline.
+ * Executors which have not terminated at the deadline still have running threads.
+ * They are reported, and interrupted by {@link ExecutorService#shutdownNow()}.</p>
+ */
+class ExecutorGroup implements TeardownGroup {
+
+    private final List<ExecutorService> executors_ = new ArrayList<>();
+
+    private final long gracePeriodNanos_;
+
+    ExecutorGroup(final long gracePeriodNanos) {
+        gracePeriodNanos_ = gracePeriodNanos;
+    }
+
+    void add(final ExecutorService executor) {
+        executors_.add(executor);
+    }
+
+    @Override
+    public void close(final TeardownEvents events) throws Exception {
+        final long[] starts = new long[executors_.size()];
+        for (int i = 0; i < executors_.size(); i++) {
+            starts[i] = events.closing(executors_.get(i));
+            executors_.get(i).shutdown();
+        }
+
+        final long deadline = System.nanoTime() + gracePeriodNanos_;
+        final boolean[] terminated = new boolean[executors_.size()];
+        try {
+            for (int i = 0; i < executors_.size(); i++) {
+                final long remaining = Math.max(0L, deadline - System.nanoTime());
+                terminated[i] = executors_.get(i).awaitTermination(remaining, TimeUnit.NANOSECONDS);
+            }
+        } catch (final InterruptedException e) {
+            for (int i = 0; i < executors_.size(); i++) {
+                executors_.get(i).shutdownNow();
+                events.failed(executors_.get(i), starts[i], e);
+            }
+            throw e;
+        }
+
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+        for (int i = 0; i < executors_.size(); i++) {
+            final ExecutorService executor = executors_.get(i);
+            if (terminated[i]) {
+                events.closed(executor, starts[i]);
+                continue;
+            }
+            executor.shutdownNow();
+            final Exception e = new IllegalStateException(
+                    "Executor did not terminate within " + TimeUnit.NANOSECONDS.toMillis(gracePeriodNanos_)
+                            + " ms: " + executor);
+            events.failed(executor, starts[i], e);
+            exceptionHandler.add(e);
+        }
+        exceptionHandler.throwIfNeeded();
+    }
+
+}
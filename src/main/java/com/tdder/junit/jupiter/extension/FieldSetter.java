@@ -0,0 +1,30 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.reflect.Field;
+
+/**
+ * Sets a {@link TeardownRegistry} field of a test class.
+ *
+ * <p>Java 9+ versions of this class are in {@code META-INF/versions}.</p>
+ */
+final class FieldSetter {
+
+    private final Field field_;
+
+    private FieldSetter(final Field field) {
+        field_ = field;
+    }
+
+    static FieldSetter of(final Field field) {
+        field.setAccessible(true);
+        return new FieldSetter(field);
+    }
+
+    /**
+     * @param target test instance. {@code null} for a static field
+     */
+    void set(final Object target, final Object value) throws IllegalAccessException {
+        field_.set(target, value);
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.File;
+
+/**
+ * Counts open file descriptors of this process, by listing {@code /proc/self/fd}.
+ *
+ * <p>Available on Linux only. A count costs one directory listing, which itself holds one descriptor
+ * while listing. It is the same for every count, so deltas are exact.</p>
+ */
+final class FileDescriptorCounter {
+
+    static final String REPORT_KEY = "teardown.openFileDescriptors";
+
+    private static final File FD_DIRECTORY = new File("/proc/self/fd");
+
+    private FileDescriptorCounter() {
+    }
+
+    static boolean isAvailable() {
+        return FD_DIRECTORY.isDirectory();
+    }
+
+    /**
+     * @return number of open file descriptors. -1 if not available
+     */
+    static int count() {
+        final String[] names = FD_DIRECTORY.list();
+        return names != null ? names.length : -1;
+    }
+
+}
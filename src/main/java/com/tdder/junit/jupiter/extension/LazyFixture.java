@@ -0,0 +1,40 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.function.Supplier;
+
+/**
+ * Teardown object which is created and registered on first access.
+ *
+ * @see TeardownRegistry#lazy(Supplier)
+ */
+class LazyFixture<T extends AutoCloseable> implements Supplier<T> {
+
+    private final TeardownRegistry registry_;
+
+    /*
+     * null after creation, so that the factory and what it captures are not kept.
+     */
+    private Supplier<T> factory_;
+
+    private T value_;
+
+    LazyFixture(final TeardownRegistry registry, final Supplier<T> factory) {
+        registry_ = registry;
+        factory_ = factory;
+    }
+
+    @Override
+    public synchronized T get() {
+        if (factory_ != null) {
+            value_ = registry_.add(factory_.get());
+            factory_ = null;
+        }
+        return value_;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LazyFixture{" + (factory_ != null ? "not created" : value_) + "}";
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds teardown objects which are still reachable long after they were closed.
+ *
+ * <p>Each closed object is tracked by a {@link WeakReference}. An object which has not been collected after
+ * the configured number of old generation (full) GC cycles is reported as a leak, with the scope which registered
+ * it. Young collections are not counted, because an object which was promoted stays reachable through all of them.
+ * A leak is usually a static cache or a {@code PER_CLASS} test instance which still refers to the fixture.</p>
+ *
+ * <p>A background thread drains the reference queue and finds leaks, so teardown of scopes only takes the leaks
+ * found so far. Objects which have not seen enough GC cycles at {@link #close()} are reported as pending.</p>
+ *
+ * <p>Tracked objects are the ones which were registered, including each member of processes, executors, buffers
+ * and concurrent teardown objects. Lambdas and method references are not tracked: a non-capturing one is
+ * a singleton which is never collected, and a capturing one is collected even while the fixture it closes is still
+ * referenced. Register the fixture itself to have it tracked.</p>
+ *
+ * <p>Only a weak reference is kept, so tracking does not keep anything alive.</p>
+ */
+class LeakDetector implements TeardownListener {
+
+    static final String REPORT_KEY = "teardown.leak";
+
+    private static final long CHECK_INTERVAL_MILLIS = 100L;
+
+    /*
+     * Collectors of the old generation, or of the whole heap. Names of HotSpot collectors.
+     */
+    private static final Set<String> OLD_COLLECTORS = new HashSet<>(Arrays.asList(
+            "MarkSweepCompact", "PS MarkSweep", "ConcurrentMarkSweep", "G1 Old Generation", "G1 Concurrent GC",
+            "ZGC Cycles", "ZGC Major Cycles", "Shenandoah Cycles"));
+
+    private final long gcCycles_;
+
+    private final List<GarbageCollectorMXBean> collectors_ = collectors();
+
+    private final ReferenceQueue<Object> queue_ = new ReferenceQueue<>();
+
+    /*
+     * In order of close, so also in order of the GC count at close. Guarded by this.
+     */
+    private final Set<Tracked> tracked_ = new LinkedHashSet<>();
+
+    /*
+     * Leaks found by the background thread, not taken yet. Guarded by this.
+     */
+    private List<String> leaks_ = new ArrayList<>();
+
+    private final Thread checker_;
+
+    LeakDetector(final long gcCycles) {
+        gcCycles_ = gcCycles;
+        checker_ = new TeardownThreadFactory("teardown-leak").newThread(this::run);
+        checker_.start();
+    }
+
+    @Override
+    public void closed(final String scopeId, final Object task, final long durationNanos) {
+        if (!isTracked(task)) {
+            return;
+        }
+        final Tracked tracked = new Tracked(task, queue_, scopeId, gcCount());
+        synchronized (this) {
+            tracked_.add(tracked);
+        }
+    }
+
+    /*
+     * Groups are not reported to listeners, their members are. Checked anyway, because a group is not a fixture.
+     */
+    static boolean isTracked(final Object task) {
+        final Class<?> type = task.getClass();
+        return !type.isSynthetic() && !type.getName().contains("$$Lambda") && !(task instanceof TeardownGroup);
+    }
+
+    static boolean isOldCollector(final String name) {
+        return OLD_COLLECTORS.contains(name);
+    }
+
+    /**
+     * @return leaks found since the last call. each one is "type registered by scopeId"
+     */
+    synchronized List<String> leaks() {
+        if (leaks_.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<String> leaks = leaks_;
+        leaks_ = new ArrayList<>();
+        return leaks;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                // wakes up without collected objects too, because leaks are the ones which are not collected.
+                final Reference<?> reference = queue_.remove(CHECK_INTERVAL_MILLIS);
+                synchronized (this) {
+                    if (reference != null) {
+                        tracked_.remove(reference);
+                    }
+                    check();
+                }
+            }
+        } catch (final InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Drains the reference queue, and moves objects which are still reachable after enough GC cycles to leaks.
+     */
+    synchronized void check() {
+        Reference<?> reference;
+        while ((reference = queue_.poll()) != null) {
+            tracked_.remove(reference);
+        }
+        final long gcCount = gcCount();
+        for (final Iterator<Tracked> it = tracked_.iterator(); it.hasNext();) {
+            final Tracked tracked = it.next();
+            if (gcCount - tracked.gcCount_ < gcCycles_) {
+                // later ones have seen even fewer GC cycles.
+                break;
+            }
+            it.remove();
+            if (tracked.get() != null) {
+                leaks_.add(tracked.describe());
+                tracked.clear();
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread.
+     *
+     * @return leaks not taken yet, and objects which are still reachable but have not seen enough GC cycles
+     */
+    List<String> close() throws InterruptedException {
+        checker_.interrupt();
+        checker_.join();
+        synchronized (this) {
+            check();
+            final List<String> leaks = leaks();
+            final long gcCount = gcCount();
+            final List<String> result = new ArrayList<>(leaks);
+            for (final Tracked tracked : tracked_) {
+                if (tracked.get() != null) {
+                    result.add(tracked.describe() + " (pending after " + (gcCount - tracked.gcCount_) + " of "
+                            + gcCycles_ + " GC cycles)");
+                }
+                tracked.clear();
+            }
+            tracked_.clear();
+            return result;
+        }
+    }
+
+    private long gcCount() {
+        long count = 0L;
+        for (final GarbageCollectorMXBean gc : collectors_) {
+            count += Math.max(0L, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /*
+     * Unknown collectors are all counted, so that leaks are still found on them.
+     */
+    private static List<GarbageCollectorMXBean> collectors() {
+        final List<GarbageCollectorMXBean> all = ManagementFactory.getGarbageCollectorMXBeans();
+        final List<GarbageCollectorMXBean> old = new ArrayList<>();
+        for (final GarbageCollectorMXBean gc : all) {
+            if (isOldCollector(gc.getName())) {
+                old.add(gc);
+            }
+        }
+        return old.isEmpty() ? all : old;
+    }
+
+    private static class Tracked extends WeakReference<Object> {
+
+        private final String type_;
+
+        private final String scopeId_;
+
+        private final long gcCount_;
+
+        Tracked(final Object task, final ReferenceQueue<Object> queue, final String scopeId, final long gcCount) {
+            super(task, queue);
+            type_ = task.getClass().getName();
+            scopeId_ = scopeId;
+            gcCount_ = gcCount;
+        }
+
+        String describe() {
+            return type_ + " registered by " + scopeId_;
+        }
+
+    }
+
+}
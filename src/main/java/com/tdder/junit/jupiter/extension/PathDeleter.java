@@ -0,0 +1,126 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Deletes file trees.
+ *
+ * <p>Sibling subtrees of the upper levels are deleted in parallel. Deeper subtrees are deleted by
+ * {@link Files#walkFileTree}, because forking a task per small directory costs more than it saves.</p>
+ */
+final class PathDeleter {
+
+    /*
+     * Number of directory levels which are deleted in parallel.
+     */
+    private static final int PARALLEL_DEPTH = 3;
+
+    private PathDeleter() {
+    }
+
+    static void delete(final Path root) throws IOException {
+        final BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (final NoSuchFileException e) {
+            return;
+        }
+        if (!attrs.isDirectory()) {
+            deleteIfExists(root);
+            return;
+        }
+        try {
+            ForkJoinPool.commonPool().invoke(new DeleteDirectory(root, 0));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static void deleteSerially(final Path root) throws IOException {
+        if (!Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+    }
+
+    private static void deleteIfExists(final Path path) throws IOException {
+        // not Files.deleteIfExists, in order to avoid an extra stat call.
+        try {
+            Files.delete(path);
+        } catch (final NoSuchFileException e) {
+            // already deleted
+        }
+    }
+
+    private static class DeleteDirectory extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path dir_;
+
+        private final int depth_;
+
+        DeleteDirectory(final Path dir, final int depth) {
+            dir_ = dir;
+            depth_ = depth;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (depth_ >= PARALLEL_DEPTH) {
+                    deleteSerially(dir_);
+                    return;
+                }
+                final List<DeleteDirectory> subtrees = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir_)) {
+                    for (final Path child : stream) {
+                        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                            subtrees.add(new DeleteDirectory(child, depth_ + 1));
+                        } else {
+                            deleteIfExists(child);
+                        }
+                    }
+                } catch (final NoSuchFileException e) {
+                    return;
+                }
+                invokeAll(subtrees);
+                deleteIfExists(dir_);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terminates processes together.
+ *
+ * <p>All processes are asked to terminate first, and then waited against one shared deadline.
+ * Processes still alive at the deadline are killed forcibly.
+ * So terminating many processes takes one grace period, not one per process.</p>
+ *
+ * <p>Java 9 version of this class is in {@code META-INF/versions/9}. It also terminates descendants of the
+ * processes, and accepts {@code ProcessHandle}. Java 8 has neither, so this version terminates only the
+ * registered processes.</p>
+ */
+class ProcessGroup implements TeardownGroup {
+
+    private final List<Process> processes_ = new ArrayList<>();
+
+    private final long gracePeriodNanos_;
+
+    ProcessGroup(final long gracePeriodNanos) {
+        gracePeriodNanos_ = gracePeriodNanos;
+    }
+
+    void add(final Process process) {
+        processes_.add(process);
+    }
+
+    /**
+     * @param handle {@code java.lang.ProcessHandle}
+     */
+    void addHandle(final Object handle) {
+        throw new UnsupportedOperationException("ProcessHandle requires Java 9 or later: " + handle);
+    }
+
+    @Override
+    public void close(final TeardownEvents events) throws Exception {
+        final long[] starts = new long[processes_.size()];
+        for (int i = 0; i < processes_.size(); i++) {
+            starts[i] = events.closing(processes_.get(i));
+            processes_.get(i).destroy();
+        }
+
+        final long deadline = System.nanoTime() + gracePeriodNanos_;
+        final List<Process> stragglers = new ArrayList<>();
+        try {
+            for (final Process process : processes_) {
+                final long remaining = Math.max(0L, deadline - System.nanoTime());
+                if (!process.waitFor(remaining, TimeUnit.NANOSECONDS)) {
+                    stragglers.add(process);
+                }
+            }
+        } catch (final InterruptedException e) {
+            // do not leave processes behind
+            for (int i = 0; i < processes_.size(); i++) {
+                processes_.get(i).destroyForcibly();
+                events.failed(processes_.get(i), starts[i], e);
+            }
+            throw e;
+        }
+
+        for (final Process process : stragglers) {
+            process.destroyForcibly();
+        }
+        // a forcibly killed process can not refuse to exit, so this does not block long.
+        for (final Process process : stragglers) {
+            process.waitFor();
+        }
+        for (int i = 0; i < processes_.size(); i++) {
+            events.closed(processes_.get(i), starts[i]);
+        }
+    }
+
+}
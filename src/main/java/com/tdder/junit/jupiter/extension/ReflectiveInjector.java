@@ -0,0 +1,78 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sets {@link TeardownRegistry} fields declared by a test class, by reflection.
+ *
+ * <p>Used for test classes which have no generated {@link TeardownRegistryInjector}.</p>
+ */
+class ReflectiveInjector implements TeardownRegistryInjector {
+
+    private final List<FieldSetter> instanceFields_ = new ArrayList<>();
+
+    private final List<FieldSetter> containerFields_ = new ArrayList<>();
+
+    private final List<FieldSetter> staticFields_ = new ArrayList<>();
+
+    ReflectiveInjector(final Class<?> testClass) {
+        for (final Field field : testClass.getDeclaredFields()) {
+            if (field.isSynthetic() || Modifier.isFinal(field.getModifiers())
+                    || !field.getType().isAssignableFrom(TeardownRegistry.class)) {
+                continue;
+            }
+            if (Modifier.isStatic(field.getModifiers())) {
+                staticFields_.add(FieldSetter.of(field));
+            } else if (field.isAnnotationPresent(ContainerScope.class)) {
+                containerFields_.add(FieldSetter.of(field));
+            } else {
+                instanceFields_.add(FieldSetter.of(field));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasInstanceFields() {
+        return !instanceFields_.isEmpty();
+    }
+
+    @Override
+    public boolean hasContainerFields() {
+        return !containerFields_.isEmpty();
+    }
+
+    @Override
+    public boolean hasStaticFields() {
+        return !staticFields_.isEmpty();
+    }
+
+    @Override
+    public void setInstanceFields(final Object testInstance, final TeardownRegistry registry) {
+        set(instanceFields_, testInstance, registry);
+    }
+
+    @Override
+    public void setContainerFields(final Object testInstance, final TeardownRegistry registry) {
+        set(containerFields_, testInstance, registry);
+    }
+
+    @Override
+    public void setStaticFields(final TeardownRegistry registry) {
+        set(staticFields_, null, registry);
+    }
+
+    private static void set(final List<FieldSetter> fields, final Object target, final TeardownRegistry registry) {
+        for (final FieldSetter field : fields) {
+            try {
+                field.set(target, registry);
+            } catch (final IllegalAccessException e) {
+                // setAccessible has been called
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.tdder.junit.jupiter.extension;
+
+/**
+ * Finds the code which registered a teardown object.
+ *
+ * <p>Java 9+ versions of this class are in {@code META-INF/versions}.</p>
+ */
+final class RegistrationSite {
+
+    private RegistrationSite() {
+    }
+
+    /**
+     * @return first frame outside of the registry. {@code null} if not found
+     */
+    static StackTraceElement find() {
+        // captures the whole stack. StackWalker is not available on Java 8.
+        final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        for (final StackTraceElement element : stackTrace) {
+            if (!TeardownHistory.isRegistryFrame(element.getClassName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.time.Duration;
+
+/**
+ * Retry of a teardown object which may fail transiently, e.g. a file still locked or a port still in use.
+ *
+ * <p>The delay before each retry is doubled from the initial delay.</p>
+ *
+ * <pre>
+ * teardownRegistry.addRetrying(RetryPolicy.of(5, Duration.ofMillis(100)), () -&gt; container.remove());
+ * </pre>
+ *
+ * @see TeardownRegistry#addRetrying(RetryPolicy, AutoCloseable)
+ * @author manhole
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts_;
+
+    private final long initialDelayNanos_;
+
+    private RetryPolicy(final int maxAttempts, final long initialDelayNanos) {
+        maxAttempts_ = maxAttempts;
+        initialDelayNanos_ = initialDelayNanos;
+    }
+
+    /**
+     * @param maxAttempts number of attempts including the first one
+     * @param initialDelay delay before the first retry
+     * @return retry policy
+     */
+    public static RetryPolicy of(final int maxAttempts, final Duration initialDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        if (initialDelay.isNegative()) {
+            throw new IllegalArgumentException("initialDelay must not be negative: " + initialDelay);
+        }
+        return new RetryPolicy(maxAttempts, initialDelay.toNanos());
+    }
+
+    /**
+     * @return number of attempts including the first one
+     */
+    public int maxAttempts() {
+        return maxAttempts_;
+    }
+
+    /**
+     * @return delay before the first retry
+     */
+    public Duration initialDelay() {
+        return Duration.ofNanos(initialDelayNanos_);
+    }
+
+    /**
+     * @param attempts number of attempts done
+     * @return delay before the next attempt
+     */
+    long delayNanos(final int attempts) {
+        final int shift = Math.min(attempts - 1, Long.numberOfLeadingZeros(initialDelayNanos_) - 1);
+        return initialDelayNanos_ << Math.max(0, shift);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{maxAttempts=" + maxAttempts_ + ", initialDelay=" + initialDelay() + "}";
+    }
+
+}
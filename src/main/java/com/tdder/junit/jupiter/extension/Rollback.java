@@ -0,0 +1,53 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Rolls back changes made through a connection since the registration.
+ *
+ * <p>If the connection is in auto-commit mode, a transaction is started, and auto-commit is restored after
+ * the rollback. Otherwise, a savepoint is set in the current transaction, and changes are rolled back to it.</p>
+ */
+class Rollback implements AutoCloseable {
+
+    private final Connection connection_;
+
+    /*
+     * null if a transaction is started by this.
+     */
+    private final Savepoint savepoint_;
+
+    private Rollback(final Connection connection, final Savepoint savepoint) {
+        connection_ = connection;
+        savepoint_ = savepoint;
+    }
+
+    static Rollback begin(final Connection connection) throws SQLException {
+        if (connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            return new Rollback(connection, null);
+        }
+        return new Rollback(connection, connection.setSavepoint());
+    }
+
+    Connection connection() {
+        return connection_;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (savepoint_ == null) {
+            try {
+                connection_.rollback();
+            } finally {
+                connection_.setAutoCommit(true);
+            }
+        } else {
+            connection_.rollback(savepoint_);
+            connection_.releaseSavepoint(savepoint_);
+        }
+    }
+
+}
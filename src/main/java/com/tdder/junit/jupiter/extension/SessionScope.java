@@ -0,0 +1,30 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the {@link TeardownRegistry} of the engine execution, instead of the one of each test or test class.
+ *
+ * <p>Teardown objects are executed at the end of the engine execution, after all test classes.
+ * It is the last teardown before the JVM of a forked test run exits, so in fast-exit mode
+ * ({@link TeardownExtension#FAST_EXIT_PROPERTY_NAME}) teardown objects added by
+ * {@link TeardownRegistry#addInProcess(AutoCloseable)} to this registry are not executed.</p>
+ *
+ * <pre>
+ * &#064;BeforeAll
+ * static void startServer(&#064;SessionScope final TeardownRegistry sessionTeardown) {
+ *     server = sessionTeardown.add(startSharedServer());
+ * }
+ * </pre>
+ *
+ * @author manhole
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SessionScope {
+}
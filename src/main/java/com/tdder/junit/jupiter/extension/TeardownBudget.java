@@ -0,0 +1,79 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Limits of a scope: number of registrations, and wall time of teardown.
+ *
+ * <p>Exceeded budgets are published as report entries, or fail the test or container.</p>
+ */
+class TeardownBudget {
+
+    static final String REPORT_KEY = "teardown.budget.exceeded";
+
+    private final int maxRegistrations_;
+
+    private final long maxTeardownNanos_;
+
+    private final boolean fail_;
+
+    TeardownBudget(final int maxRegistrations, final long maxTeardownNanos, final boolean fail) {
+        maxRegistrations_ = maxRegistrations;
+        maxTeardownNanos_ = maxTeardownNanos;
+        fail_ = fail;
+    }
+
+    static TeardownBudget of(final ExtensionContext root) {
+        final int maxRegistrations = root.getConfigurationParameter(
+                TeardownExtension.BUDGET_REGISTRATIONS_PROPERTY_NAME, Integer::parseInt).orElse(Integer.MAX_VALUE);
+        final long maxTeardownMillis = root.getConfigurationParameter(
+                TeardownExtension.BUDGET_TEARDOWN_MILLIS_PROPERTY_NAME, Long::parseLong).orElse(Long.MAX_VALUE);
+        final String action = root.getConfigurationParameter(TeardownExtension.BUDGET_ACTION_PROPERTY_NAME)
+                .orElse("report");
+        final boolean fail;
+        if ("fail".equals(action)) {
+            fail = true;
+        } else if ("report".equals(action)) {
+            fail = false;
+        } else {
+            throw new IllegalArgumentException(
+                    TeardownExtension.BUDGET_ACTION_PROPERTY_NAME + " must be report or fail: " + action);
+        }
+        final long maxTeardownNanos = maxTeardownMillis == Long.MAX_VALUE ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(maxTeardownMillis);
+        return new TeardownBudget(maxRegistrations, maxTeardownNanos, fail);
+    }
+
+    void checkRegistrations(final int registrations, final ExtensionContext extensionContext,
+            final ExceptionHandler exceptionHandler) {
+        if (maxRegistrations_ < registrations) {
+            exceeded("Registrations exceeded the budget " + maxRegistrations_ + ": " + registrations,
+                    extensionContext, exceptionHandler);
+        }
+    }
+
+    void checkTeardownTime(final long teardownNanos, final ExtensionContext extensionContext,
+            final ExceptionHandler exceptionHandler) {
+        if (maxTeardownNanos_ < teardownNanos) {
+            exceeded("Teardown time exceeded the budget " + TimeUnit.NANOSECONDS.toMillis(maxTeardownNanos_)
+                    + " ms: " + TimeUnit.NANOSECONDS.toMillis(teardownNanos) + " ms", extensionContext,
+                    exceptionHandler);
+        }
+    }
+
+    boolean limitsTeardownTime() {
+        return maxTeardownNanos_ != Long.MAX_VALUE;
+    }
+
+    private void exceeded(final String message, final ExtensionContext extensionContext,
+            final ExceptionHandler exceptionHandler) {
+        if (fail_) {
+            exceptionHandler.add(new IllegalStateException(message));
+        } else {
+            extensionContext.publishReportEntry(REPORT_KEY, message);
+        }
+    }
+
+}
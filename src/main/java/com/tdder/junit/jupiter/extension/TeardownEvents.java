@@ -0,0 +1,59 @@
+package com.tdder.junit.jupiter.extension;
+
+/**
+ * Notifies the listener of events of teardown objects of one scope.
+ *
+ * <p>Does nothing if no listener is present, so that nothing is measured without listeners.</p>
+ */
+final class TeardownEvents {
+
+    static final TeardownEvents NONE = new TeardownEvents(null, null);
+
+    /*
+     * null if no listener is present.
+     */
+    private final TeardownListener listener_;
+
+    private final String scopeId_;
+
+    TeardownEvents(final TeardownListener listener, final String scopeId) {
+        listener_ = listener;
+        scopeId_ = scopeId;
+    }
+
+    void registered(final Object task) {
+        if (listener_ != null) {
+            listener_.registered(scopeId_, task);
+        }
+    }
+
+    /**
+     * @return start time, to be passed to {@link #closed(Object, long)} or {@link #failed(Object, long, Exception)}
+     */
+    long closing(final Object task) {
+        if (listener_ == null) {
+            return 0L;
+        }
+        listener_.closing(scopeId_, task);
+        return System.nanoTime();
+    }
+
+    void closed(final Object task, final long start) {
+        if (listener_ != null) {
+            listener_.closed(scopeId_, task, System.nanoTime() - start);
+        }
+    }
+
+    void failed(final Object task, final long start, final Exception exception) {
+        if (listener_ != null) {
+            listener_.failed(scopeId_, task, System.nanoTime() - start, exception);
+        }
+    }
+
+    void teardownEnded() {
+        if (listener_ != null) {
+            listener_.teardownEnded(scopeId_);
+        }
+    }
+
+}
@@ -1,10 +1,11 @@
 package com.tdder.junit.jupiter.extension;
 
-import java.lang.reflect.Executable;
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Set;
 
 import org.junit.jupiter.api.extension.AfterAllCallback;
 import org.junit.jupiter.api.extension.AfterEachCallback;
@@ -15,9 +16,6 @@ import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
 import org.junit.jupiter.api.extension.TestInstances;
-import org.junit.platform.commons.support.HierarchyTraversalMode;
-import org.junit.platform.commons.support.ModifierSupport;
-import org.junit.platform.commons.support.ReflectionSupport;
 
 /**
  * JUnit Jupiter extension that tears down test fixtures.
@@ -63,12 +61,231 @@ import org.junit.platform.commons.support.ReflectionSupport;
  * }
  * </pre>
  *
+ * <p>
+ * Configuration parameters:
+ * </p>
+ * <ul>
+ *     <li>{@value #DEDUPLICATE_PROPERTY_NAME}: If {@code true}, adding the same teardown object more than once
+ *     is ignored. Default is {@code false}.</li>
+ *     <li>{@value #JOURNAL_DIRECTORY_PROPERTY_NAME}: Directory of the teardown journal.
+ *     If specified, teardown objects added by {@link TeardownRegistry#addDurable(AutoCloseable)} are journaled.
+ *     Default is none (disabled).</li>
+ *     <li>{@value #TEMP_DIRECTORY_DELETE_IN_BACKGROUND_PROPERTY_NAME}: If {@code true}, directories created by
+ *     {@link TeardownRegistry#createTempDirectory(String)} are deleted in background. Default is {@code false}.</li>
+ *     <li>{@value #GRACE_PERIOD_PROPERTY_NAME}: Grace period in milliseconds to wait for registered processes
+ *     and executors to terminate. Default is {@code 10000}.</li>
+ *     <li>{@value #LISTENERS_PROPERTY_NAME}: Comma separated class names of {@link TeardownListener}.
+ *     Listeners are also discovered by {@link java.util.ServiceLoader}.</li>
+ *     <li>{@value #JMX_ENABLED_PROPERTY_NAME}: If {@code true}, teardown metrics are exposed through JMX.
+ *     Default is {@code false}.</li>
+ *     <li>{@value #FAST_EXIT_PROPERTY_NAME}: If {@code true}, teardown objects added by
+ *     {@link TeardownRegistry#addInProcess(AutoCloseable)} to {@link SessionScope} are not executed.
+ *     Default is {@code false}.</li>
+ *     <li>{@value #CONCURRENCY_PROPERTY_NAME}: Maximum number of concurrent teardown objects executed at a time.
+ *     Default is the number of available processors.</li>
+ *     <li>{@value #HISTORY_FILE_PROPERTY_NAME}: File to keep durations of teardown objects across runs.
+ *     Default is none (disabled).</li>
+ *     <li>{@value #BUDGET_REGISTRATIONS_PROPERTY_NAME}: Maximum number of registrations per test or container.
+ *     Default is unlimited.</li>
+ *     <li>{@value #BUDGET_TEARDOWN_MILLIS_PROPERTY_NAME}: Maximum teardown time in milliseconds per test or
+ *     container. Default is unlimited.</li>
+ *     <li>{@value #BUDGET_ACTION_PROPERTY_NAME}: {@code report} or {@code fail}. Default is {@code report}.</li>
+ *     <li>{@value #LEAK_DETECTION_GC_CYCLES_PROPERTY_NAME}: Number of old generation GC cycles after which a closed
+ *     teardown object which is still reachable is reported as a leak. Default is none (disabled).</li>
+ *     <li>{@value #THREAD_LEAK_PROPERTY_NAME}: {@code off}, {@code report} or {@code interrupt}.
+ *     Default is {@code off}.</li>
+ *     <li>{@value #THREAD_LEAK_GRACE_PERIOD_PROPERTY_NAME}: Time in milliseconds to wait for threads started in a test
+ *     or container to end. Default is 100.</li>
+ *     <li>{@value #FILE_DESCRIPTORS_ENABLED_PROPERTY_NAME}: If {@code true}, the change of open file descriptors by
+ *     each test and container is reported. Linux only. Default is {@code false}.</li>
+ *     <li>{@value #TRACE_DIRECTORY_PROPERTY_NAME}: Directory of trace files. Default is none (disabled).</li>
+ *     <li>{@value #TRACE_RECORDS_PROPERTY_NAME}: Number of records kept in a trace file. Default is 262144.</li>
+ * </ul>
+ *
  * @see TeardownRegistry
  * @author manhole
  */
 public class TeardownExtension
         implements ParameterResolver, BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
 
+    /**
+     * Configuration parameter name to enable deduplication of teardown objects.
+     *
+     * <p>When enabled, teardown objects are compared by identity, and the same object is executed only once
+     * at the position of its first registration.</p>
+     */
+    public static final String DEDUPLICATE_PROPERTY_NAME = "com.tdder.junit.teardown.deduplicate";
+
+    /**
+     * Configuration parameter name of the teardown journal directory.
+     *
+     * <p>Teardown objects added by {@link TeardownRegistry#addDurable(AutoCloseable)} are recorded in a journal file
+     * in this directory until they are executed.
+     * If a test JVM is killed, the next run executes the teardown objects left in its journal.</p>
+     *
+     * <p>Journals are deserialized at the start of each run, so this directory must be trusted, i.e. not writable by
+     * other users. Only {@code AutoCloseable} classes and simple values such as strings, boxed primitives and enums
+     * are deserialized.</p>
+     */
+    public static final String JOURNAL_DIRECTORY_PROPERTY_NAME = "com.tdder.junit.teardown.journal.directory";
+
+    /**
+     * Configuration parameter name to delete temporary directories in background.
+     *
+     * <p>When enabled, a directory created by {@link TeardownRegistry#createTempDirectory(String)} is renamed at
+     * teardown, and deleted by a background thread. So the next test does not wait for the deletion.
+     * All deletions are completed before the end of the engine execution.</p>
+     */
+    public static final String TEMP_DIRECTORY_DELETE_IN_BACKGROUND_PROPERTY_NAME =
+            "com.tdder.junit.teardown.tempDirectory.deleteInBackground";
+
+    /**
+     * Configuration parameter name of the grace period in milliseconds.
+     *
+     * <p>Processes registered by {@link TeardownRegistry#addProcess(Process)} are waited for this period
+     * after they are asked to terminate, and then killed forcibly.
+     * Executors registered by {@link TeardownRegistry#addExecutor(java.util.concurrent.ExecutorService)} are waited
+     * for this period after they are shut down, and then reported and interrupted.</p>
+     */
+    public static final String GRACE_PERIOD_PROPERTY_NAME = "com.tdder.junit.teardown.gracePeriod";
+
+    /**
+     * Configuration parameter name of comma separated class names of {@link TeardownListener}.
+     */
+    public static final String LISTENERS_PROPERTY_NAME = "com.tdder.junit.teardown.listeners";
+
+    /**
+     * Configuration parameter name to expose teardown metrics through JMX.
+     *
+     * @see TeardownMetricsMXBean
+     */
+    public static final String JMX_ENABLED_PROPERTY_NAME = "com.tdder.junit.teardown.jmx.enabled";
+
+    /**
+     * Configuration parameter name to enable fast-exit mode.
+     *
+     * <p>In fast-exit mode, teardown objects added by {@link TeardownRegistry#addInProcess(AutoCloseable)}
+     * to {@link SessionScope} are not executed at the end of the engine execution, because the JVM exit frees
+     * them. Only external teardown objects are executed there. It shortens the shutdown of forked test JVMs.
+     * Teardown objects of tests and containers are always executed, because other tests still run after them.</p>
+     */
+    public static final String FAST_EXIT_PROPERTY_NAME = "com.tdder.junit.teardown.fastExit";
+
+    /**
+     * Configuration parameter name of the maximum number of teardown objects added by
+     * {@link TeardownRegistry#addConcurrent(AutoCloseable)} executed at a time.
+     *
+     * <p>The next one starts when one ends, so the order of the history decides which ones start first.</p>
+     */
+    public static final String CONCURRENCY_PROPERTY_NAME = "com.tdder.junit.teardown.concurrency";
+
+    /**
+     * Configuration parameter name of the teardown history file.
+     *
+     * <p>Durations of teardown objects added by {@link TeardownRegistry#addConcurrent(AutoCloseable)} are kept
+     * in this file, by type and registration site. In the next runs, the ones which took longest are started first.
+     * The number of entries is bounded.</p>
+     */
+    public static final String HISTORY_FILE_PROPERTY_NAME = "com.tdder.junit.teardown.history.file";
+
+    /**
+     * Configuration parameter name of the maximum number of registrations per test or container.
+     *
+     * @see #BUDGET_ACTION_PROPERTY_NAME
+     */
+    public static final String BUDGET_REGISTRATIONS_PROPERTY_NAME = "com.tdder.junit.teardown.budget.registrations";
+
+    /**
+     * Configuration parameter name of the maximum teardown time in milliseconds per test or container.
+     *
+     * @see #BUDGET_ACTION_PROPERTY_NAME
+     */
+    public static final String BUDGET_TEARDOWN_MILLIS_PROPERTY_NAME =
+            "com.tdder.junit.teardown.budget.teardownMillis";
+
+    /**
+     * Configuration parameter name of the action when a budget is exceeded.
+     *
+     * <ul>
+     *     <li>{@code report}: publish {@code teardown.budget.exceeded} report entry. This is the default.</li>
+     *     <li>{@code fail}: fail the test or container, after all teardown objects are executed.</li>
+     * </ul>
+     */
+    public static final String BUDGET_ACTION_PROPERTY_NAME = "com.tdder.junit.teardown.budget.action";
+
+    /**
+     * Configuration parameter name of the number of old generation (full) GC cycles, after which a closed teardown
+     * object which is still reachable is reported as a leak. Leaks are published as {@code teardown.leak} report
+     * entries. Lambdas and method references are not tracked.
+     *
+     * <p>Objects which have not seen enough GC cycles at the end of the engine execution are published there as
+     * pending.</p>
+     */
+    public static final String LEAK_DETECTION_GC_CYCLES_PROPERTY_NAME =
+            "com.tdder.junit.teardown.leakDetection.gcCycles";
+
+    /**
+     * Configuration parameter name of thread leak detection.
+     *
+     * <p>Threads started in a test or container and still alive after its teardown are leaked threads.</p>
+     * <ul>
+     *     <li>{@code off}: no detection. This is the default.</li>
+     *     <li>{@code report}: publish {@code teardown.threadLeak} report entries.</li>
+     *     <li>{@code interrupt}: interrupt leaked threads, and publish {@code teardown.threadLeak} report entries.
+     *     Not allowed with {@code junit.jupiter.execution.parallel.enabled=true}.</li>
+     * </ul>
+     *
+     * @see #THREAD_LEAK_GRACE_PERIOD_PROPERTY_NAME
+     */
+    public static final String THREAD_LEAK_PROPERTY_NAME = "com.tdder.junit.teardown.threadLeak";
+
+    /**
+     * Configuration parameter name of the time in milliseconds to wait for threads started in a test or container
+     * to end, so that threads in asynchronous shutdown are not reported as leaks.
+     */
+    public static final String THREAD_LEAK_GRACE_PERIOD_PROPERTY_NAME =
+            "com.tdder.junit.teardown.threadLeak.gracePeriod";
+
+    /**
+     * Configuration parameter name to report open file descriptors left by each test and container.
+     *
+     * <p>The count of open file descriptors at the start of a test or container is compared with the count after its
+     * teardown. A non-zero change is published as {@code teardown.openFileDescriptors} report entry.
+     * Counts are read from {@code /proc/self/fd}, so this is ignored on platforms other than Linux.</p>
+     */
+    public static final String FILE_DESCRIPTORS_ENABLED_PROPERTY_NAME =
+            "com.tdder.junit.teardown.fileDescriptors.enabled";
+
+    /**
+     * Configuration parameter name of the trace directory.
+     *
+     * <p>When specified, every registration and close is recorded in a memory-mapped trace file in this directory,
+     * one file per engine execution. Records have a fixed size and are appended without a lock, so tracing does not
+     * distort timings much. Traces are converted to CSV or Chrome trace-event JSON by
+     * {@link TeardownTraceDecoder}.</p>
+     */
+    public static final String TRACE_DIRECTORY_PROPERTY_NAME = "com.tdder.junit.teardown.trace.directory";
+
+    /**
+     * Configuration parameter name of the number of records kept in a trace file.
+     *
+     * <p>The trace file is a ring buffer, so the oldest records are overwritten when it is full.</p>
+     */
+    public static final String TRACE_RECORDS_PROPERTY_NAME = "com.tdder.junit.teardown.trace.records";
+
+    /*
+     * Injectors of a test class and its superclasses, top down. Looked up once per test class, not per test.
+     */
+    private static final ClassValue<List<TeardownRegistryInjector>> INJECTORS =
+            new ClassValue<List<TeardownRegistryInjector>>() {
+
+                @Override
+                protected List<TeardownRegistryInjector> computeValue(final Class<?> testClass) {
+                    return injectors(testClass);
+                }
+
+            };
+
     private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(
             TeardownExtension.class);
 
@@ -76,6 +293,18 @@ public class TeardownExtension
 
     private final Object STATIC_STORE_KEY = TeardownExtension.class.getName() + "_STATIC";
 
+    private final Object INSTANCE_THREADS_STORE_KEY = TeardownExtension.class.getName() + "_INSTANCE_THREADS";
+
+    private final Object STATIC_THREADS_STORE_KEY = TeardownExtension.class.getName() + "_STATIC_THREADS";
+
+    private final Object INSTANCE_FILE_DESCRIPTORS_STORE_KEY =
+            TeardownExtension.class.getName() + "_INSTANCE_FILE_DESCRIPTORS";
+
+    private final Object STATIC_FILE_DESCRIPTORS_STORE_KEY =
+            TeardownExtension.class.getName() + "_STATIC_FILE_DESCRIPTORS";
+
+    private static final Object SESSION_STORE_KEY = TeardownExtension.class.getName() + "_SESSION";
+
     @Override
     public boolean supportsParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext)
             throws ParameterResolutionException {
@@ -87,8 +316,14 @@ public class TeardownExtension
     public Object resolveParameter(final ParameterContext parameterContext, final ExtensionContext extensionContext)
             throws ParameterResolutionException {
 
-        final Executable executable = parameterContext.getDeclaringExecutable();
-        if (ModifierSupport.isStatic(executable)) {
+        if (parameterContext.isAnnotated(SessionScope.class)) {
+            return session(extensionContext).registry();
+        }
+        if (parameterContext.isAnnotated(ContainerScope.class)) {
+            return registry(containerContext(extensionContext, extensionContext.getRequiredTestClass()),
+                    STATIC_STORE_KEY);
+        }
+        if (!extensionContext.getTestMethod().isPresent()) {
             // @BeforeAll
             return resolveParameter(extensionContext, STATIC_STORE_KEY);
         } else {
@@ -100,17 +335,18 @@ public class TeardownExtension
     public Object resolveParameter(final ExtensionContext extensionContext, final Object storeKey)
             throws ParameterResolutionException {
 
-        final ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
-        return store.getOrComputeIfAbsent(storeKey, (v) -> new TeardownRegistryImpl(), TeardownRegistryImpl.class);
+        return registry(extensionContext, storeKey);
     }
 
     @Override
     public void beforeAll(final ExtensionContext extensionContext) throws Exception {
+        beforeScope(extensionContext, STATIC_THREADS_STORE_KEY, STATIC_FILE_DESCRIPTORS_STORE_KEY);
         injectStaticFields(extensionContext);
     }
 
     @Override
     public void beforeEach(final ExtensionContext extensionContext) throws Exception {
+        beforeScope(extensionContext, INSTANCE_THREADS_STORE_KEY, INSTANCE_FILE_DESCRIPTORS_STORE_KEY);
         final TestInstances requiredTestInstances = extensionContext.getRequiredTestInstances();
         final List<Object> allInstances = requiredTestInstances.getAllInstances();
         for (final Object instance : allInstances) {
@@ -118,76 +354,225 @@ public class TeardownExtension
         }
     }
 
-    private void injectInstanceFields(final ExtensionContext extensionContext, final Object testInstance)
-            throws IllegalAccessException {
+    private void injectInstanceFields(final ExtensionContext extensionContext, final Object testInstance) {
+        for (final TeardownRegistryInjector injector : INJECTORS.get(testInstance.getClass())) {
+            if (injector.hasInstanceFields()) {
+                injector.setInstanceFields(testInstance, registry(extensionContext, INSTANCE_STORE_KEY));
+            }
+            if (injector.hasContainerFields()) {
+                final ExtensionContext containerContext = containerContext(extensionContext,
+                        testInstance.getClass());
+                injector.setContainerFields(testInstance, registry(containerContext, STATIC_STORE_KEY));
+            }
+        }
+    }
 
-        final ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
-        final List<Field> fields = instanceFields(testInstance.getClass());
-        for (final Field field : fields) {
-            final TeardownRegistry teardownRegistry = store.getOrComputeIfAbsent(INSTANCE_STORE_KEY,
-                    (v) -> new TeardownRegistryImpl(), TeardownRegistryImpl.class);
+    /**
+     * @return context of the test class, which is the test or container itself or one of its ancestors
+     */
+    private static ExtensionContext containerContext(final ExtensionContext extensionContext,
+            final Class<?> testClass) {
+        ExtensionContext context = extensionContext;
+        while (context != null) {
+            if (!context.getTestMethod().isPresent() && context.getTestClass().orElse(null) == testClass) {
+                return context;
+            }
+            context = context.getParent().orElse(null);
+        }
+        throw new IllegalStateException("No container of " + testClass.getName() + ": "
+                + extensionContext.getUniqueId());
+    }
 
-            field.setAccessible(true);
-            field.set(testInstance, teardownRegistry);
+    private void injectStaticFields(final ExtensionContext extensionContext) {
+        final Class<?> testClass = extensionContext.getRequiredTestClass();
+        for (final TeardownRegistryInjector injector : INJECTORS.get(testClass)) {
+            if (injector.hasStaticFields()) {
+                injector.setStaticFields(registry(extensionContext, STATIC_STORE_KEY));
+            }
         }
     }
 
-    private void injectStaticFields(final ExtensionContext extensionContext) throws IllegalAccessException {
+    private static TeardownRegistryImpl registry(final ExtensionContext extensionContext, final Object storeKey) {
         final ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
-        final Class<?> testClass = extensionContext.getRequiredTestClass();
-        final List<Field> fields = staticFields(testClass);
-        for (final Field field : fields) {
-            final TeardownRegistry teardownRegistry = store.getOrComputeIfAbsent(STATIC_STORE_KEY,
-                    (v) -> new TeardownRegistryImpl(), TeardownRegistryImpl.class);
+        return store.getOrComputeIfAbsent(scopeKey(extensionContext, storeKey),
+                (v) -> createRegistry(extensionContext), TeardownRegistryImpl.class);
+    }
 
-            field.setAccessible(true);
-            field.set(null, teardownRegistry);
-        }
+    /*
+     * A store also finds values of ancestor contexts. The key includes the unique id, so that a @Nested container
+     * gets its own registry, instead of the one of the enclosing class.
+     */
+    private static Object scopeKey(final ExtensionContext extensionContext, final Object storeKey) {
+        return Arrays.asList(storeKey, extensionContext.getUniqueId());
+    }
+
+    private static TeardownRegistryImpl createRegistry(final ExtensionContext extensionContext) {
+        return session(extensionContext).createRegistry(extensionContext.getUniqueId());
+    }
+
+    private static TeardownSession session(final ExtensionContext extensionContext) {
+        // one session per engine execution
+        final ExtensionContext root = extensionContext.getRoot();
+        final ExtensionContext.Store store = root.getStore(NAMESPACE);
+        return store.getOrComputeIfAbsent(SESSION_STORE_KEY, (v) -> TeardownSession.open(root),
+                TeardownSession.class);
     }
 
     @Override
     public void afterEach(final ExtensionContext extensionContext) throws Exception {
-        teardownContext(extensionContext, INSTANCE_STORE_KEY);
+        try {
+            teardownContext(extensionContext, INSTANCE_STORE_KEY);
+        } finally {
+            afterScope(extensionContext, INSTANCE_THREADS_STORE_KEY, INSTANCE_FILE_DESCRIPTORS_STORE_KEY);
+        }
     }
 
     @Override
     public void afterAll(final ExtensionContext extensionContext) throws Exception {
-        teardownContext(extensionContext, STATIC_STORE_KEY);
+        try {
+            teardownContext(extensionContext, STATIC_STORE_KEY);
+        } finally {
+            afterScope(extensionContext, STATIC_THREADS_STORE_KEY, STATIC_FILE_DESCRIPTORS_STORE_KEY);
+        }
         teardownStaticFields(extensionContext);
+        reportRetries(extensionContext);
     }
 
-    private void teardownContext(final ExtensionContext extensionContext, final Object storeKey) throws Exception {
+    /*
+     * Retries of the tests in this container are reported by the container, after the tests have proceeded.
+     */
+    private void reportRetries(final ExtensionContext extensionContext) throws Exception {
+        final List<Exception> failures = session(extensionContext).awaitRetries(extensionContext.getUniqueId());
+        if (!failures.isEmpty()) {
+            final ExceptionHandler exceptionHandler = ExceptionHandler.determine(extensionContext);
+            failures.forEach(exceptionHandler::add);
+            exceptionHandler.throwIfNeeded();
+        }
+    }
+
+    /*
+     * Records the state of the process at the start of a scope, to find what the scope leaves behind.
+     */
+    private void beforeScope(final ExtensionContext extensionContext, final Object threadsStoreKey,
+            final Object fileDescriptorsStoreKey) {
+        final TeardownSession session = session(extensionContext);
         final ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
-        final TeardownRegistryImpl teardown = store.get(storeKey, TeardownRegistryImpl.class);
-        if (teardown != null) {
+        if (session.threadLeakDetector() != null) {
+            store.put(threadsStoreKey, session.threadLeakDetector().snapshot());
+        }
+        if (session.countFileDescriptors()) {
+            store.put(fileDescriptorsStoreKey, FileDescriptorCounter.count());
+        }
+    }
+
+    private void afterScope(final ExtensionContext extensionContext, final Object threadsStoreKey,
+            final Object fileDescriptorsStoreKey) throws InterruptedException {
+        final TeardownSession session = session(extensionContext);
+        final ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
+        final ThreadLeakDetector detector = session.threadLeakDetector();
+        if (detector != null) {
+            @SuppressWarnings("unchecked")
+            final Set<Thread> snapshot = store.remove(threadsStoreKey, Set.class);
+            if (snapshot != null) {
+                for (final String leak : detector.check(snapshot)) {
+                    extensionContext.publishReportEntry(ThreadLeakDetector.REPORT_KEY, leak);
+                }
+            }
+        }
+        if (session.countFileDescriptors()) {
+            final Integer before = store.remove(fileDescriptorsStoreKey, Integer.class);
+            if (before != null) {
+                final int delta = FileDescriptorCounter.count() - before;
+                if (delta != 0) {
+                    extensionContext.publishReportEntry(FileDescriptorCounter.REPORT_KEY,
+                            (0 < delta ? "+" : "") + delta);
+                }
+            }
+        }
+    }
+
+    private void teardownContext(final ExtensionContext extensionContext, final Object storeKey)
+            throws Exception {
+        final ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
+        final TeardownRegistryImpl teardown = store.get(scopeKey(extensionContext, storeKey),
+                TeardownRegistryImpl.class);
+        if (teardown == null) {
+            // objects closed by earlier scopes are checked by every scope, even without its own registry.
+            reportLeaks(extensionContext);
+        } else {
             final ExceptionHandler exceptionHandler = ExceptionHandler.determine(extensionContext);
-            teardown.teardown(exceptionHandler);
+            final TeardownBudget budget = session(extensionContext).budget();
+            budget.checkRegistrations(teardown.registrations(), extensionContext, exceptionHandler);
+            if (budget.limitsTeardownTime()) {
+                final long start = System.nanoTime();
+                teardown.teardown(exceptionHandler, false);
+                budget.checkTeardownTime(System.nanoTime() - start, extensionContext, exceptionHandler);
+            } else {
+                teardown.teardown(exceptionHandler, false);
+            }
+            reportLeaks(extensionContext);
+            final long releasedNativeBytes = teardown.releasedNativeBytes();
+            if (releasedNativeBytes > 0L) {
+                extensionContext.publishReportEntry("teardown.nativeBytesReleased",
+                        Long.toString(releasedNativeBytes));
+            }
             exceptionHandler.throwIfNeeded();
         }
     }
 
-    private void teardownStaticFields(final ExtensionContext extensionContext) throws Exception {
+    private void reportLeaks(final ExtensionContext extensionContext) {
+        final LeakDetector leakDetector = session(extensionContext).leakDetector();
+        if (leakDetector != null) {
+            for (final String leak : leakDetector.leaks()) {
+                extensionContext.publishReportEntry(LeakDetector.REPORT_KEY, leak);
+            }
+        }
+    }
+
+    private void teardownStaticFields(final ExtensionContext extensionContext) {
         final Class<?> testClass = extensionContext.getRequiredTestClass();
-        final List<Field> fields = staticFields(testClass);
-        for (final Field field : fields) {
-            // Clear static field to null. Because it will remain in memory.
-            field.setAccessible(true);
-            field.set(null, null);
+        for (final TeardownRegistryInjector injector : INJECTORS.get(testClass)) {
+            if (injector.hasStaticFields()) {
+                // Clear static field to null. Because it will remain in memory.
+                injector.setStaticFields(null);
+            }
         }
     }
 
-    private static List<Field> instanceFields(final Class<?> testClass) {
-        final Predicate<Field> predicate = ((Predicate<Field>) ModifierSupport::isNotStatic)
-                .and(field -> field.getType().isAssignableFrom(TeardownRegistry.class))
-                .and(ModifierSupport::isNotFinal);
-        return ReflectionSupport.findFields(testClass, predicate, HierarchyTraversalMode.TOP_DOWN);
+    static List<TeardownRegistryInjector> injectors(final Class<?> testClass) {
+        final List<TeardownRegistryInjector> injectors = new ArrayList<>();
+        for (Class<?> c = testClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            TeardownRegistryInjector injector = generatedInjector(c);
+            if (injector == null) {
+                injector = new ReflectiveInjector(c);
+            }
+            if (injector.hasInstanceFields() || injector.hasContainerFields() || injector.hasStaticFields()) {
+                injectors.add(0, injector);
+            }
+        }
+        return Collections.unmodifiableList(injectors);
     }
 
-    private static List<Field> staticFields(final Class<?> testClass) {
-        final Predicate<Field> predicate = ((Predicate<Field>) ModifierSupport::isStatic)
-                .and(field -> field.getType().isAssignableFrom(TeardownRegistry.class))
-                .and(ModifierSupport::isNotFinal);
-        return ReflectionSupport.findFields(testClass, predicate, HierarchyTraversalMode.TOP_DOWN);
+    /**
+     * @return injector generated by {@link TeardownRegistryProcessor}. {@code null} if not generated
+     */
+    private static TeardownRegistryInjector generatedInjector(final Class<?> testClass) {
+        final ClassLoader classLoader = testClass.getClassLoader();
+        if (classLoader == null) {
+            return null;
+        }
+        final String className = testClass.getName() + TeardownRegistryInjector.CLASS_NAME_SUFFIX;
+        final Class<?> injectorClass;
+        try {
+            injectorClass = Class.forName(className, true, classLoader);
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            return (TeardownRegistryInjector) injectorClass.getConstructor().newInstance();
+        } catch (final ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("Failed to create TeardownRegistryInjector: " + className, e);
+        }
     }
 
 }
@@ -0,0 +1,20 @@
+package com.tdder.junit.jupiter.extension;
+
+/**
+ * Teardown object which closes teardown objects registered by users together.
+ *
+ * <p>Listeners are notified of each member, not of the group.</p>
+ */
+interface TeardownGroup extends AutoCloseable {
+
+    /**
+     * @param events notified of each member
+     */
+    void close(TeardownEvents events) throws Exception;
+
+    @Override
+    default void close() throws Exception {
+        close(TeardownEvents.NONE);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Durations of teardown objects learned across runs, keyed by type and registration site.
+ *
+ * <p>The table keeps the most recently used {@value #MAX_ENTRIES} entries, and is persisted as a properties file.
+ * A duration is an exponentially weighted moving average, so one outlier does not dominate.</p>
+ */
+class TeardownHistory {
+
+    static final int MAX_ENTRIES = 1024;
+
+    private final Path file_;
+
+    private final Map<String, Long> durations_ = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+            return MAX_ENTRIES < size();
+        }
+
+    };
+
+    private TeardownHistory(final Path file) {
+        file_ = file;
+    }
+
+    static TeardownHistory load(final Path file) throws IOException {
+        final TeardownHistory history = new TeardownHistory(file);
+        if (Files.exists(file)) {
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            for (final String key : properties.stringPropertyNames()) {
+                try {
+                    history.durations_.put(key, Long.parseLong(properties.getProperty(key)));
+                } catch (final NumberFormatException e) {
+                    // ignore broken entry
+                }
+            }
+        }
+        return history;
+    }
+
+    /**
+     * @return key of the teardown object, stable across runs
+     */
+    static String key(final Object task, final StackTraceElement site) {
+        String type = task.getClass().getName();
+        // lambda class names differ between runs
+        final int lambda = type.indexOf("$$Lambda");
+        if (0 <= lambda) {
+            type = type.substring(0, lambda) + "$$Lambda";
+        }
+        if (site == null) {
+            return type;
+        }
+        return type + "@" + site.getClassName() + "." + site.getMethodName() + ":" + site.getLineNumber();
+    }
+
+    /**
+     * @return first frame outside of the registry, i.e. the code which registered a teardown object
+     */
+    static StackTraceElement registrationSite() {
+        return RegistrationSite.find();
+    }
+
+    static boolean isRegistryFrame(final String className) {
+        return className.startsWith(TeardownRegistryImpl.class.getName())
+                || className.equals(ConcurrentGroup.class.getName())
+                || className.equals(TeardownHistory.class.getName())
+                || className.equals(RegistrationSite.class.getName());
+    }
+
+    /**
+     * @return estimated duration in nanoseconds. 0 if unknown
+     */
+    synchronized long estimate(final String key) {
+        final Long duration = durations_.get(key);
+        return duration != null ? duration : 0L;
+    }
+
+    synchronized void record(final String key, final long durationNanos) {
+        final Long previous = durations_.get(key);
+        durations_.put(key, previous == null ? durationNanos : (previous + durationNanos) / 2);
+    }
+
+    synchronized void save() throws IOException {
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Long> entry : durations_.entrySet()) {
+            properties.setProperty(entry.getKey(), Long.toString(entry.getValue()));
+        }
+        final Path parent = file_.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path tmp = Files.createTempFile(parent, file_.getFileName().toString(), ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "teardown durations in nanoseconds");
+        }
+        Files.move(tmp, file_, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+}
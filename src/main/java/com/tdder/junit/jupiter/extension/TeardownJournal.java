@@ -0,0 +1,268 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Append-only, memory-mapped journal of durable teardown objects.
+ *
+ * <p>Each JVM writes its own journal file and holds an exclusive lock on it while running.
+ * A journal file that can be locked by another JVM was left behind by a crashed run,
+ * so its pending entries are replayed by {@link #reap(Path, ExceptionHandler)}.</p>
+ *
+ * <p>Record layout: {@code [int length][byte state][payload]}. The payload is a serialized teardown object.
+ * The length is written last, so a record torn by a crash reads as the end of the journal.
+ * Because records are written to a mapped buffer, they survive a killed process without {@code fsync}.</p>
+ *
+ * <p>Replaying deserializes the payloads, so the journal directory must not be writable by untrusted users.
+ * Only teardown objects and simple values are resolved, see {@link RestrictedObjectInputStream}.</p>
+ */
+class TeardownJournal implements ExtensionContext.Store.CloseableResource {
+
+    static final String FILE_SUFFIX = ".journal";
+
+    /*
+     * Suffix of a journal file until it is locked. Not matched by reap().
+     */
+    private static final String TEMP_SUFFIX = ".journal.tmp";
+
+    private static final byte PENDING = 1;
+
+    private static final byte DONE = 2;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1024 * 1024;
+
+    private final Path path_;
+
+    private final FileChannel channel_;
+
+    private final FileLock lock_;
+
+    private MappedByteBuffer buffer_;
+
+    private int pending_;
+
+    private TeardownJournal(final Path path, final FileChannel channel, final FileLock lock) throws IOException {
+        path_ = path;
+        channel_ = channel;
+        lock_ = lock;
+        buffer_ = channel.map(FileChannel.MapMode.READ_WRITE, 0, INITIAL_CAPACITY);
+    }
+
+    static TeardownJournal open(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        final String name = "teardown-" + UUID.randomUUID();
+        // locked before it gets the journal name, so that reap() of another JVM never sees it unlocked.
+        final Path temp = directory.resolve(name + TEMP_SUFFIX);
+        final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            final FileLock lock = channel.lock();
+            final Path path = Files.move(temp, directory.resolve(name + FILE_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            return new TeardownJournal(path, channel, lock);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Records a teardown object.
+     *
+     * @return position of the entry, to be passed to {@link #markDone(int)}
+     */
+    synchronized int append(final Serializable teardown) {
+        final byte[] payload = serialize(teardown);
+        final int recordSize = HEADER_SIZE + payload.length;
+        // keep room for the zero length which terminates the journal.
+        ensureCapacity(recordSize + Integer.BYTES);
+
+        final int position = buffer_.position();
+        buffer_.put(position + Integer.BYTES, PENDING);
+        for (int i = 0; i < payload.length; i++) {
+            buffer_.put(position + HEADER_SIZE + i, payload[i]);
+        }
+        buffer_.putInt(position, payload.length);
+        buffer_.position(position + recordSize);
+        pending_++;
+        return position;
+    }
+
+    synchronized void markDone(final int position) {
+        buffer_.put(position + Integer.BYTES, DONE);
+        pending_--;
+    }
+
+    synchronized int pendingCount() {
+        return pending_;
+    }
+
+    Path path() {
+        return path_;
+    }
+
+    private void ensureCapacity(final int required) {
+        if (buffer_.remaining() >= required) {
+            return;
+        }
+        final int position = buffer_.position();
+        int capacity = buffer_.capacity();
+        while (capacity - position < required) {
+            capacity = Math.multiplyExact(capacity, 2);
+        }
+        try {
+            buffer_ = channel_.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer_.position(position);
+    }
+
+    /**
+     * Closes the journal at the end of a normal run. The journal file is no longer needed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            lock_.release();
+        } finally {
+            channel_.close();
+        }
+        Files.deleteIfExists(path_);
+    }
+
+    /**
+     * Replays pending entries of journals left behind by crashed runs, and deletes those journals.
+     *
+     * <p>Journals locked by running JVMs are skipped.</p>
+     */
+    static void reap(final Path directory, final ExceptionHandler exceptionHandler) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (final Path path : stream) {
+                try {
+                    reapFile(path, exceptionHandler);
+                } catch (final Exception e) {
+                    exceptionHandler.add(e);
+                }
+            }
+        }
+    }
+
+    private static void reapFile(final Path path, final ExceptionHandler exceptionHandler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (final OverlappingFileLockException e) {
+                // locked by this JVM
+                return;
+            }
+            if (lock == null) {
+                // owner is still running
+                return;
+            }
+            try {
+                final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    final int length = buffer.getInt();
+                    if (length <= 0 || buffer.remaining() < Byte.BYTES + length) {
+                        break;
+                    }
+                    final byte state = buffer.get();
+                    final byte[] payload = new byte[length];
+                    buffer.get(payload);
+                    if (state == PENDING) {
+                        try {
+                            ((AutoCloseable) deserialize(payload)).close();
+                        } catch (final Exception e) {
+                            exceptionHandler.add(e);
+                        }
+                    }
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        Files.delete(path);
+    }
+
+    private static byte[] serialize(final Serializable teardown) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(teardown);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] payload) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new RestrictedObjectInputStream(new ByteArrayInputStream(payload))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Resolves only teardown objects and simple values, so that a journal file does not instantiate arbitrary
+     * serializable classes.
+     *
+     * <p>Allowed: {@code Serializable} classes implementing {@code AutoCloseable}, {@code String}, boxed primitives,
+     * enums, and arrays of them or of primitives. Fields of other types, e.g. collections, are rejected.</p>
+     */
+    private static class RestrictedObjectInputStream extends ObjectInputStream {
+
+        // Number and Enum are resolved as the superclasses of the others.
+        private static final Set<Class<?>> VALUE_CLASSES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+                Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+                Number.class, Enum.class));
+
+        RestrictedObjectInputStream(final ByteArrayInputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final Class<?> c = super.resolveClass(desc);
+            Class<?> component = c;
+            while (component.isArray()) {
+                component = component.getComponentType();
+            }
+            if (component.isPrimitive() || VALUE_CLASSES.contains(component) || component.isEnum()
+                    || AutoCloseable.class.isAssignableFrom(component)) {
+                return c;
+            }
+            throw new InvalidClassException(desc.getName(), "not allowed in a teardown journal");
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.tdder.junit.jupiter.extension;
+
+/**
+ * Listener of teardown events.
+ *
+ * <p>
+ * Listeners are discovered by {@link java.util.ServiceLoader}, and also specified by
+ * {@link TeardownExtension#LISTENERS_PROPERTY_NAME} configuration parameter.
+ * A listener must have a public no-arg constructor. One instance is used for an engine execution,
+ * and it may be called from multiple threads.
+ * </p>
+ * <p>
+ * If no listener is present, TeardownExtension does not measure anything for listeners.
+ * </p>
+ * <p>
+ * Tasks are the objects registered by users: processes, executors, buffers and concurrent teardown objects are
+ * reported one by one, even though they are closed together. A connection registered by
+ * {@link TeardownRegistry#addRollback(java.sql.Connection)} is reported as the connection.
+ * </p>
+ * <p>
+ * An exception thrown by a listener is not a failure of the teardown object, and does not stop other listeners.
+ * It is reported at the end of the engine execution.
+ * </p>
+ *
+ * @see TeardownExtension
+ * @author manhole
+ */
+public interface TeardownListener {
+
+    /**
+     * Called when a teardown object is registered.
+     *
+     * @param scopeId unique id of the test or container which owns the registry
+     * @param task registered teardown object
+     */
+    default void registered(String scopeId, Object task) {
+    }
+
+    /**
+     * Called before a teardown object is executed.
+     *
+     * @param scopeId unique id of the test or container which owns the registry
+     * @param task teardown object
+     */
+    default void closing(String scopeId, Object task) {
+    }
+
+    /**
+     * Called after a teardown object is executed successfully.
+     *
+     * @param scopeId unique id of the test or container which owns the registry
+     * @param task teardown object
+     * @param durationNanos execution time in nanoseconds
+     */
+    default void closed(String scopeId, Object task, long durationNanos) {
+    }
+
+    /**
+     * Called after a teardown object failed.
+     *
+     * @param scopeId unique id of the test or container which owns the registry
+     * @param task teardown object
+     * @param durationNanos execution time in nanoseconds
+     * @param exception thrown exception
+     */
+    default void failed(String scopeId, Object task, long durationNanos, Exception exception) {
+    }
+
+    /**
+     * Called after the teardown of a scope ended.
+     *
+     * <p>Registered teardown objects which were neither closed nor failed were discarded,
+     * for example by {@link TeardownExtension#FAST_EXIT_PROPERTY_NAME}.</p>
+     *
+     * @param scopeId unique id of the test or container which owns the registry
+     */
+    default void teardownEnded(String scopeId) {
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects teardown metrics as a listener, and exposes them through JMX.
+ *
+ * <p>Counters are {@link LongAdder}, so concurrent tests do not contend on them.
+ * The histogram has fixed 64 log2 buckets.</p>
+ */
+class TeardownMetrics implements TeardownListener, TeardownMetricsMXBean {
+
+    static final String OBJECT_NAME = "com.tdder.junit.teardown:type=TeardownMetrics";
+
+    private static final int BUCKETS = Long.SIZE;
+
+    private static TeardownMetrics instance;
+
+    private final LongAdder registrations_ = new LongAdder();
+
+    private final LongAdder closes_ = new LongAdder();
+
+    private final LongAdder failures_ = new LongAdder();
+
+    /*
+     * An entry lives from the first registration of the scope to the end of its teardown.
+     */
+    private final ConcurrentHashMap<String, LongAdder> openTasks_ = new ConcurrentHashMap<>();
+
+    private final LongAdder[] histogram_ = new LongAdder[BUCKETS];
+
+    TeardownMetrics() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram_[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the instance registered to the platform MBean server. one per JVM.
+     */
+    static synchronized TeardownMetrics register() {
+        if (instance == null) {
+            final TeardownMetrics metrics = new TeardownMetrics();
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.registerMBean(metrics, new ObjectName(OBJECT_NAME));
+            } catch (final JMException e) {
+                throw new IllegalStateException("Failed to register MBean: " + OBJECT_NAME, e);
+            }
+            instance = metrics;
+        }
+        return instance;
+    }
+
+    @Override
+    public void registered(final String scopeId, final Object task) {
+        registrations_.increment();
+        openTasks(scopeId).increment();
+    }
+
+    @Override
+    public void closed(final String scopeId, final Object task, final long durationNanos) {
+        closes_.increment();
+        done(scopeId, durationNanos);
+    }
+
+    @Override
+    public void failed(final String scopeId, final Object task, final long durationNanos,
+            final Exception exception) {
+        failures_.increment();
+        done(scopeId, durationNanos);
+    }
+
+    /*
+     * Forgets teardown objects discarded without execution, so that the scope does not stay open.
+     */
+    @Override
+    public void teardownEnded(final String scopeId) {
+        openTasks_.remove(scopeId);
+    }
+
+    private void done(final String scopeId, final long durationNanos) {
+        final LongAdder openTasks = openTasks_.get(scopeId);
+        if (openTasks != null) {
+            openTasks.decrement();
+        }
+        histogram_[bucket(durationNanos)].increment();
+    }
+
+    private LongAdder openTasks(final String scopeId) {
+        final LongAdder openTasks = openTasks_.get(scopeId);
+        if (openTasks != null) {
+            return openTasks;
+        }
+        // computeIfAbsent locks the bin even if present on Java 8, so only for the first registration of the scope.
+        return openTasks_.computeIfAbsent(scopeId, k -> new LongAdder());
+    }
+
+    static int bucket(final long durationNanos) {
+        if (durationNanos <= 0L) {
+            return 0;
+        }
+        return BUCKETS - 1 - Long.numberOfLeadingZeros(durationNanos);
+    }
+
+    @Override
+    public long getRegistrations() {
+        return registrations_.sum();
+    }
+
+    @Override
+    public long getCloses() {
+        return closes_.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures_.sum();
+    }
+
+    @Override
+    public Map<String, Long> getOpenTasksPerScope() {
+        final Map<String, Long> openTasks = new HashMap<>();
+        openTasks_.forEach((scopeId, adder) -> {
+            final long count = adder.sum();
+            if (0L < count) {
+                openTasks.put(scopeId, count);
+            }
+        });
+        return openTasks;
+    }
+
+    @Override
+    public long[] getCloseDurationHistogram() {
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram_[i].sum();
+        }
+        return counts;
+    }
+
+}
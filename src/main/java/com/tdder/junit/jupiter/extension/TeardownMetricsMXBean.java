@@ -0,0 +1,47 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.Map;
+
+/**
+ * Teardown metrics exposed through JMX.
+ *
+ * <p>Registered as {@value TeardownMetrics#OBJECT_NAME} when
+ * {@link TeardownExtension#JMX_ENABLED_PROPERTY_NAME} is {@code true}.
+ * Metrics are accumulated over all engine executions in the JVM.</p>
+ *
+ * @see TeardownExtension#JMX_ENABLED_PROPERTY_NAME
+ * @author manhole
+ */
+public interface TeardownMetricsMXBean {
+
+    /**
+     * @return number of registered teardown objects
+     */
+    long getRegistrations();
+
+    /**
+     * @return number of teardown objects executed successfully
+     */
+    long getCloses();
+
+    /**
+     * @return number of teardown objects failed
+     */
+    long getFailures();
+
+    /**
+     * @return number of registered but not yet executed teardown objects, by unique id of the test or container
+     */
+    Map<String, Long> getOpenTasksPerScope();
+
+    /**
+     * Histogram of execution times of teardown objects.
+     *
+     * <p>Element {@code i} is the number of executions which took {@code [2^i, 2^(i+1))} nanoseconds.
+     * Element 0 also includes executions of 0 nanoseconds.</p>
+     *
+     * @return counts of 64 buckets
+     */
+    long[] getCloseDurationHistogram();
+
+}
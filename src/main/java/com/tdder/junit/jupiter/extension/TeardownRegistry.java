@@ -1,5 +1,14 @@
 package com.tdder.junit.jupiter.extension;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
 /**
  * Teardown object registry.
  *
@@ -27,4 +36,272 @@ public interface TeardownRegistry {
      */
     <T extends AutoCloseable> T add(T closeable);
 
+    /**
+     * Register teardown object which only frees resources in the test JVM, e.g. heap or threads.
+     *
+     * <p>
+     * Behaves like {@link #add(AutoCloseable)}.
+     * In addition, in fast-exit mode, it is not executed if it is used on static field or parameter,
+     * because the exit of the JVM frees the resources anyway.
+     * Use it only for objects which are harmless to leave until the JVM exits.
+     * </p>
+     *
+     * @param <T> {@code AutoCloseable}
+     * @param closeable teardown object
+     * @return closeable itself
+     * @see TeardownExtension#FAST_EXIT_PROPERTY_NAME
+     */
+    <T extends AutoCloseable> T addInProcess(T closeable);
+
+    /**
+     * Register teardown object which is independent of other teardown objects.
+     *
+     * <p>
+     * Independent teardown objects registered to a registry are executed concurrently,
+     * at the position of the first registered one.
+     * If teardown history is enabled, the ones which took longest in previous runs are started first.
+     * </p>
+     *
+     * @param <T> {@code AutoCloseable}
+     * @param closeable teardown object
+     * @return closeable itself
+     * @see TeardownExtension#HISTORY_FILE_PROPERTY_NAME
+     */
+    <T extends AutoCloseable> T addConcurrent(T closeable);
+
+    /**
+     * Register teardown object which is independent of other teardown objects in the same phase.
+     *
+     * <p>
+     * Teardown objects of a phase are executed concurrently, at the position of the first registered one.
+     * So phases are executed one after another, in reverse order of their first registration, e.g.
+     * </p>
+     *
+     * <pre>
+     * teardownRegistry.addConcurrent("data", DeletePath.of(dataDir));
+     * teardownRegistry.addConcurrent("servers", server1);
+     * teardownRegistry.addConcurrent("servers", server2);
+     * teardownRegistry.addConcurrent("clients", client1);
+     * teardownRegistry.addConcurrent("clients", client2);
+     * </pre>
+     *
+     * <p>
+     * stops clients, then servers, then deletes data.
+     * {@link #addConcurrent(AutoCloseable)} registers to the default phase.
+     * </p>
+     *
+     * @param <T> {@code AutoCloseable}
+     * @param phase name of the phase
+     * @param closeable teardown object
+     * @return closeable itself
+     */
+    <T extends AutoCloseable> T addConcurrent(String phase, T closeable);
+
+    /**
+     * Register teardown object which may fail transiently, e.g. a file still locked or a port still in use.
+     *
+     * <p>
+     * If it fails, it is retried in background with backoff, and the next test does not wait for it.
+     * If all attempts fail, the failure is reported at the teardown of the enclosing container,
+     * or at the end of the engine execution for the ones registered to static scope.
+     * </p>
+     *
+     * <pre>
+     * teardownRegistry.addRetrying(RetryPolicy.of(5, Duration.ofMillis(100)), () -&gt; Files.delete(lockedFile));
+     * </pre>
+     *
+     * @param <T> {@code AutoCloseable}
+     * @param retryPolicy attempts and backoff
+     * @param closeable teardown object
+     * @return closeable itself
+     */
+    <T extends AutoCloseable> T addRetrying(RetryPolicy retryPolicy, T closeable);
+
+    /**
+     * Register teardown object which is created on first access.
+     *
+     * <p>
+     * The returned supplier creates the teardown object by {@code factory} on the first {@code get()},
+     * registers it by {@link #add(AutoCloseable)}, and returns the same object afterwards.
+     * If {@code get()} is never called, neither creation nor teardown happens.
+     * </p>
+     * <pre>
+     * &#064;BeforeEach
+     * void setUp(final TeardownRegistry teardownRegistry) {
+     *     server = teardownRegistry.lazy(() -&gt; startServer());
+     * }
+     * </pre>
+     *
+     * @param <T> {@code AutoCloseable}
+     * @param factory creates the teardown object
+     * @return memoized supplier of the teardown object
+     */
+    <T extends AutoCloseable> Supplier<T> lazy(Supplier<T> factory);
+
+    /**
+     * Register teardown object which is executed even if the test JVM is killed.
+     *
+     * <p>
+     * Behaves like {@link #add(AutoCloseable)}.
+     * In addition, if the teardown journal is enabled, the teardown object is recorded in the journal.
+     * If the JVM is killed before the teardown object is executed, it is executed at the start of the next run.
+     * </p>
+     *
+     * @param <T> serializable {@code AutoCloseable}
+     * @param closeable teardown object
+     * @return closeable itself
+     * @see TeardownExtension#JOURNAL_DIRECTORY_PROPERTY_NAME
+     * @see DeletePath
+     */
+    <T extends AutoCloseable & Serializable> T addDurable(T closeable);
+
+    /**
+     * Create a new temporary directory, and register teardown which deletes it recursively.
+     *
+     * <p>
+     * The directory is created in the default temporary-file directory, like
+     * {@link java.nio.file.Files#createTempDirectory(String, java.nio.file.attribute.FileAttribute[])}.
+     * Sibling subdirectories are deleted in parallel.
+     * The teardown is durable if the teardown journal is enabled.
+     * </p>
+     *
+     * @param prefix prefix of the directory name. may be {@code null}
+     * @return created directory
+     * @throws IOException if failed to create a directory
+     * @see TeardownExtension#TEMP_DIRECTORY_DELETE_IN_BACKGROUND_PROPERTY_NAME
+     */
+    Path createTempDirectory(String prefix) throws IOException;
+
+    /**
+     * Take a snapshot of a directory, and register teardown which deletes the snapshot.
+     *
+     * <p>
+     * Register the returned snapshot to restore the directory, e.g. after each test.
+     * Restoration copies back only the files which were modified, added or deleted.
+     * The teardown is durable if the teardown journal is enabled.
+     * </p>
+     *
+     * <pre>
+     * &#064;BeforeAll
+     * static void beforeAll(final TeardownRegistry teardownRegistry) throws IOException {
+     *     baseline = teardownRegistry.snapshotDirectory(dataDir);
+     * }
+     *
+     * &#064;BeforeEach
+     * void setUp(final TeardownRegistry teardownRegistry) {
+     *     teardownRegistry.add(baseline);
+     * }
+     * </pre>
+     *
+     * @param directory directory to take a snapshot of
+     * @return snapshot which restores the directory when closed
+     * @throws IOException if failed to copy the directory
+     */
+    DirectorySnapshot snapshotDirectory(Path directory) throws IOException;
+
+    /**
+     * Register process to be terminated.
+     *
+     * <p>
+     * Processes registered to a registry are terminated together, at the position of the first registered process.
+     * All processes are asked to terminate gracefully, and then waited against one shared grace period.
+     * Processes still alive after the grace period are killed forcibly.
+     * On Java 9 or later, descendants of the processes are terminated together.
+     * </p>
+     *
+     * @param <T> {@code Process}
+     * @param process process to terminate
+     * @return process itself
+     * @see TeardownExtension#GRACE_PERIOD_PROPERTY_NAME
+     */
+    <T extends Process> T addProcess(T process);
+
+    /**
+     * Register process, which is not necessarily started by this JVM, to be terminated with its descendants.
+     *
+     * <p>
+     * Behaves like {@link #addProcess(Process)}.
+     * The type parameter is not bounded, because this library supports Java 8, which has no
+     * {@code java.lang.ProcessHandle}.
+     * </p>
+     *
+     * <pre>
+     * final ProcessHandle server = teardownRegistry.addProcessHandle(ProcessHandle.of(pid).get());
+     * </pre>
+     *
+     * @param <T> {@code java.lang.ProcessHandle}
+     * @param processHandle process to terminate
+     * @return processHandle itself
+     * @throws IllegalArgumentException if it is not a {@code ProcessHandle}, or it is the current process
+     * @throws UnsupportedOperationException on Java 8
+     */
+    <T> T addProcessHandle(T processHandle);
+
+    /**
+     * Register executor to be shut down.
+     *
+     * <p>
+     * Executors registered to a registry are shut down together, at the position of the first registered executor.
+     * All executors are shut down first, and then their terminations are waited against one shared grace period.
+     * Executors which have not terminated after the grace period are reported as teardown failures,
+     * and interrupted by {@link ExecutorService#shutdownNow()}.
+     * </p>
+     *
+     * @param <T> {@code ExecutorService}
+     * @param executor executor to shut down
+     * @return executor itself
+     * @see TeardownExtension#GRACE_PERIOD_PROPERTY_NAME
+     */
+    <T extends ExecutorService> T addExecutor(T executor);
+
+    /**
+     * Allocate a direct buffer whose native memory is freed at teardown.
+     *
+     * <p>
+     * Without this, the native memory of a direct buffer is freed only when GC collects the buffer.
+     * The buffer and its slices must not be used after teardown.
+     * </p>
+     *
+     * @param capacity capacity in bytes
+     * @return new direct buffer
+     * @see #addBuffer(ByteBuffer)
+     */
+    ByteBuffer allocateDirect(int capacity);
+
+    /**
+     * Register a direct buffer, e.g. {@link java.nio.MappedByteBuffer}, whose native memory is freed at teardown.
+     *
+     * <p>
+     * Buffers registered to a registry are freed together, at the position of the first registered buffer.
+     * A mapped buffer is unmapped. The buffer and its slices must not be used after teardown.
+     * Slices and duplicates are not freed, because they do not own the memory.
+     * To close {@link java.nio.channels.FileChannel}, use {@link #add(AutoCloseable)}.
+     * </p>
+     *
+     * @param <T> {@code ByteBuffer}
+     * @param buffer direct buffer
+     * @return buffer itself
+     * @throws IllegalArgumentException if the buffer is not direct
+     */
+    <T extends ByteBuffer> T addBuffer(T buffer);
+
+    /**
+     * Roll back changes made through the connection at teardown.
+     *
+     * <p>
+     * If the connection is in auto-commit mode, a transaction is started and auto-commit is restored after rollback.
+     * Otherwise, a savepoint is set in the current transaction and changes are rolled back to the savepoint.
+     * </p>
+     * <p>
+     * Rollbacks are executed before other teardown objects, in reverse order of registration.
+     * It is much faster than deleting inserted rows one by one.
+     * Changes committed by the test are not rolled back.
+     * </p>
+     *
+     * @param connection connection to roll back
+     * @return connection itself
+     * @throws SQLException if failed to start a transaction or to set a savepoint
+     */
+    Connection addRollback(Connection connection) throws SQLException;
+
 }
@@ -1,32 +1,487 @@
 package com.tdder.junit.jupiter.extension;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 class TeardownRegistryImpl implements TeardownRegistry {
 
+    /*
+     * Phase of addConcurrent(closeable).
+     */
+    private static final String DEFAULT_PHASE = "";
+
     private final Deque<AutoCloseable> tasks_ = new LinkedList<>();
 
+    /*
+     * Executed before tasks_.
+     */
+    private final Deque<Rollback> rollbacks_ = new LinkedList<>();
+
+    private final TeardownSession session_;
+
+    /*
+     * Identifies the scope of this registry for retries.
+     */
+    private final String scopeId_;
+
+    private final TeardownEvents events_;
+
+    /*
+     * Identity set of registered tasks. null if deduplication is disabled.
+     */
+    private final Set<AutoCloseable> registered_;
+
+    /*
+     * Group of processes waiting for teardown. null if no process is registered.
+     */
+    private ProcessGroup processGroup_;
+
+    /*
+     * Group of executors waiting for teardown. null if no executor is registered.
+     */
+    private ExecutorGroup executorGroup_;
+
+    /*
+     * Direct buffers waiting for teardown. null if no buffer is registered.
+     */
+    private BufferArena bufferArena_;
+
+    /*
+     * Independent teardown objects by phase. null if none is registered.
+     */
+    private Map<String, ConcurrentGroup> phases_;
+
+    private long releasedNativeBytes_;
+
+    /*
+     * Registrations since the last teardown.
+     */
+    private int registrations_;
+
+    TeardownRegistryImpl(final TeardownSession session, final String scopeId) {
+        session_ = session;
+        scopeId_ = scopeId;
+        events_ = new TeardownEvents(session.listener(), scopeId);
+        registered_ = session.deduplicate() ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+    }
+
     @Override
     public <T extends AutoCloseable> T add(final T closeable) {
-        tasks_.add(closeable);
+        if (isRegistered(closeable)) {
+            return closeable;
+        }
+        push(closeable);
+        return closeable;
+    }
+
+    @Override
+    public <T extends AutoCloseable> T addInProcess(final T closeable) {
+        if (isRegistered(closeable)) {
+            return closeable;
+        }
+        push(new InProcessTask(closeable));
         return closeable;
     }
 
+    @Override
+    public <T extends AutoCloseable> T addConcurrent(final T closeable) {
+        return addConcurrent(DEFAULT_PHASE, closeable);
+    }
+
+    @Override
+    public <T extends AutoCloseable> T addConcurrent(final String phase, final T closeable) {
+        if (isRegistered(closeable)) {
+            return closeable;
+        }
+        if (phases_ == null) {
+            phases_ = new HashMap<>();
+        }
+        ConcurrentGroup group = phases_.get(phase);
+        if (group == null) {
+            // a phase is executed at the position of its first registration.
+            group = push(new ConcurrentGroup(session_.teardownExecutor(), session_.concurrency(),
+                    session_.history()));
+            phases_.put(phase, group);
+        }
+        group.add(closeable);
+        events_.registered(closeable);
+        return closeable;
+    }
+
+    @Override
+    public <T extends AutoCloseable> T addRetrying(final RetryPolicy retryPolicy, final T closeable) {
+        if (isRegistered(closeable)) {
+            return closeable;
+        }
+        push(new RetryingTask(closeable, retryPolicy));
+        return closeable;
+    }
+
+    @Override
+    public <T extends AutoCloseable & Serializable> T addDurable(final T closeable) {
+        if (isRegistered(closeable)) {
+            return closeable;
+        }
+        addJournaled(closeable, closeable);
+        return closeable;
+    }
+
+    @Override
+    public <T extends AutoCloseable> Supplier<T> lazy(final Supplier<T> factory) {
+        return new LazyFixture<>(this, factory);
+    }
+
+    @Override
+    public Path createTempDirectory(final String prefix) throws IOException {
+        countRegistration();
+        final Path dir = Files.createTempDirectory(prefix);
+        final DeletePath deletePath = DeletePath.of(dir);
+        addJournaled(new DeleteTempDirectory(deletePath), deletePath);
+        return dir;
+    }
+
+    @Override
+    public DirectorySnapshot snapshotDirectory(final Path directory) throws IOException {
+        countRegistration();
+        final DirectorySnapshot snapshot = DirectorySnapshot.take(directory);
+        final DeletePath deletePath = DeletePath.of(snapshot.copy());
+        addJournaled(deletePath, deletePath);
+        return snapshot;
+    }
+
+    @Override
+    public <T extends Process> T addProcess(final T process) {
+        countRegistration();
+        processGroup().add(process);
+        events_.registered(process);
+        return process;
+    }
+
+    @Override
+    public <T> T addProcessHandle(final T processHandle) {
+        countRegistration();
+        processGroup().addHandle(processHandle);
+        events_.registered(processHandle);
+        return processHandle;
+    }
+
+    private ProcessGroup processGroup() {
+        if (processGroup_ == null) {
+            processGroup_ = push(new ProcessGroup(session_.gracePeriodNanos()));
+        }
+        return processGroup_;
+    }
+
+    @Override
+    public <T extends ExecutorService> T addExecutor(final T executor) {
+        countRegistration();
+        if (executorGroup_ == null) {
+            executorGroup_ = push(new ExecutorGroup(session_.gracePeriodNanos()));
+        }
+        executorGroup_.add(executor);
+        events_.registered(executor);
+        return executor;
+    }
+
+    @Override
+    public ByteBuffer allocateDirect(final int capacity) {
+        countRegistration();
+        final ByteBuffer buffer = bufferArena().allocateDirect(capacity);
+        events_.registered(buffer);
+        return buffer;
+    }
+
+    @Override
+    public <T extends ByteBuffer> T addBuffer(final T buffer) {
+        countRegistration();
+        bufferArena().add(buffer);
+        events_.registered(buffer);
+        return buffer;
+    }
+
+    private BufferArena bufferArena() {
+        if (bufferArena_ == null) {
+            bufferArena_ = push(new BufferArena());
+        }
+        return bufferArena_;
+    }
+
+    @Override
+    public Connection addRollback(final Connection connection) throws SQLException {
+        countRegistration();
+        final Rollback rollback = Rollback.begin(connection);
+        rollbacks_.add(rollback);
+        events_.registered(connection);
+        return connection;
+    }
+
+    private boolean isRegistered(final AutoCloseable closeable) {
+        // keep the position of the first registration.
+        if (registered_ != null && !registered_.add(closeable)) {
+            return true;
+        }
+        countRegistration();
+        return false;
+    }
+
+    private void countRegistration() {
+        registrations_++;
+    }
+
+    /**
+     * @return number of registrations since the last teardown
+     */
+    int registrations() {
+        return registrations_;
+    }
+
+    private void addJournaled(final AutoCloseable task, final Serializable descriptor) {
+        final TeardownJournal journal = session_.journal();
+        if (journal == null) {
+            push(task);
+        } else {
+            final int position = journal.append(descriptor);
+            push(new JournaledTask(task, journal, position));
+        }
+    }
+
+    /**
+     * @param task teardown object. Members of a {@link TeardownGroup} are notified by the caller
+     */
+    private <T extends AutoCloseable> T push(final T task) {
+        tasks_.add(task);
+        if (!(task instanceof TeardownGroup)) {
+            events_.registered(source(task));
+        }
+        return task;
+    }
+
+    /**
+     * @return teardown object registered by the user, to be reported to listeners
+     */
+    private static Object source(final AutoCloseable task) {
+        if (task instanceof Rollback) {
+            return ((Rollback) task).connection();
+        }
+        return DelegatingTask.unwrap(task);
+    }
+
     int size() {
-        return tasks_.size();
+        return rollbacks_.size() + tasks_.size();
     }
 
     public void teardown(final ExceptionHandler exceptionHandler) throws Exception {
+        teardown(exceptionHandler, false);
+    }
+
+    /**
+     * @param skipInProcess if {@code true}, teardown objects added by {@link #addInProcess(AutoCloseable)}
+     *         are discarded without execution
+     */
+    public void teardown(final ExceptionHandler exceptionHandler, final boolean skipInProcess) throws Exception {
+        // processes, executors, buffers and concurrent ones registered during teardown make new groups.
+        processGroup_ = null;
+        phases_ = null;
+        executorGroup_ = null;
+        final BufferArena bufferArena = bufferArena_;
+        bufferArena_ = null;
+        // roll back first, so that other teardown objects see the rolled back state.
+        while (!rollbacks_.isEmpty()) {
+            close(rollbacks_.removeLast(), exceptionHandler);
+        }
         while (!tasks_.isEmpty()) {
             // teardown in reverse order
             final AutoCloseable task = tasks_.removeLast();
+            if (skipInProcess && task instanceof InProcessTask) {
+                continue;
+            }
+            close(task, exceptionHandler);
+        }
+        if (registered_ != null) {
+            registered_.clear();
+        }
+        releasedNativeBytes_ = bufferArena != null ? bufferArena.releasedBytes() : 0L;
+        registrations_ = 0;
+        events_.teardownEnded();
+    }
+
+    private void close(final AutoCloseable task, final ExceptionHandler exceptionHandler) {
+        if (task instanceof TeardownGroup) {
             try {
-                task.close();
+                ((TeardownGroup) task).close(events_);
             } catch (final Exception e) {
                 exceptionHandler.add(e);
             }
+            return;
+        }
+
+        final Object source = source(task);
+        final long start = events_.closing(source);
+        try {
+            task.close();
+        } catch (final Exception e) {
+            events_.failed(source, start, e);
+            exceptionHandler.add(e);
+            return;
+        }
+        // outside of the try, so that a failure of a listener is not taken for a failure of the task.
+        events_.closed(source, start);
+    }
+
+    /**
+     * @return native bytes of direct buffers released by the last teardown
+     */
+    long releasedNativeBytes() {
+        return releasedNativeBytes_;
+    }
+
+    /**
+     * Task which adds behavior to a registered teardown object.
+     */
+    private abstract static class DelegatingTask implements AutoCloseable {
+
+        final AutoCloseable task_;
+
+        DelegatingTask(final AutoCloseable task) {
+            task_ = task;
+        }
+
+        /**
+         * @return registered teardown object, to be reported to listeners
+         */
+        static Object unwrap(final AutoCloseable task) {
+            AutoCloseable t = task;
+            while (t instanceof DelegatingTask) {
+                t = ((DelegatingTask) t).task_;
+            }
+            return t;
+        }
+
+    }
+
+    /**
+     * Marks a teardown object which only frees resources in this JVM.
+     */
+    private static class InProcessTask extends DelegatingTask {
+
+        InProcessTask(final AutoCloseable task) {
+            super(task);
+        }
+
+        @Override
+        public void close() throws Exception {
+            task_.close();
+        }
+
+    }
+
+    /**
+     * Hands a failed teardown object over to the retrier, so that the teardown does not wait for the backoff.
+     */
+    private class RetryingTask extends DelegatingTask {
+
+        private final RetryPolicy retryPolicy_;
+
+        RetryingTask(final AutoCloseable task, final RetryPolicy retryPolicy) {
+            super(task);
+            retryPolicy_ = retryPolicy;
+        }
+
+        @Override
+        public void close() throws Exception {
+            try {
+                task_.close();
+            } catch (final Exception e) {
+                if (retryPolicy_.maxAttempts() <= 1) {
+                    throw e;
+                }
+                session_.retry(scopeId_, task_, retryPolicy_, e);
+            }
+        }
+
+    }
+
+    private static class JournaledTask extends DelegatingTask {
+
+        private final TeardownJournal journal_;
+
+        private final int position_;
+
+        JournaledTask(final AutoCloseable task, final TeardownJournal journal, final int position) {
+            super(task);
+            journal_ = journal;
+            position_ = position;
+        }
+
+        @Override
+        public void close() throws Exception {
+            try {
+                task_.close();
+            } finally {
+                // even if failed, the teardown has been attempted. not to retry at the next run.
+                journal_.markDone(position_);
+            }
         }
+
+    }
+
+    private class DeleteTempDirectory extends DelegatingTask {
+
+        private final DeletePath deletePath_;
+
+        DeleteTempDirectory(final DeletePath deletePath) {
+            super(deletePath);
+            deletePath_ = deletePath;
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (!session_.deleteInBackground()) {
+                deletePath_.close();
+                return;
+            }
+
+            // rename, so the directory name can be reused immediately.
+            final Path dir = deletePath_.path();
+            final Path trash = dir.resolveSibling(dir.getFileName() + ".deleting");
+            try {
+                Files.move(dir, trash, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException e) {
+                deletePath_.close();
+                return;
+            }
+
+            final DeletePath deleteTrash = DeletePath.of(trash);
+            final TeardownJournal journal = session_.journal();
+            final int position = journal != null ? journal.append(deleteTrash) : -1;
+            session_.submitBackground(() -> {
+                try {
+                    deleteTrash.close();
+                } catch (final Exception e) {
+                    session_.addBackgroundFailure(e);
+                } finally {
+                    if (journal != null) {
+                        journal.markDone(position);
+                    }
+                }
+            });
+        }
+
     }
 
 }
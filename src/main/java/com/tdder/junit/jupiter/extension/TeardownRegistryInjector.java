@@ -0,0 +1,51 @@
+package com.tdder.junit.jupiter.extension;
+
+/**
+ * Sets {@link TeardownRegistry} fields declared by a test class, without reflection.
+ *
+ * <p>Implementations are generated by {@link TeardownRegistryProcessor} as
+ * {@code <binary name of the test class>_TeardownRegistryInjector}, in the package of the test class.
+ * {@link TeardownExtension} uses the generated class when present, otherwise it finds the fields by reflection.</p>
+ *
+ * @author manhole
+ */
+public interface TeardownRegistryInjector {
+
+    /**
+     * Suffix of the generated class name.
+     */
+    String CLASS_NAME_SUFFIX = "_TeardownRegistryInjector";
+
+    /**
+     * @return {@code true} if the test class declares instance fields to inject
+     */
+    boolean hasInstanceFields();
+
+    /**
+     * @return {@code true} if the test class declares instance fields annotated with {@link ContainerScope}
+     */
+    boolean hasContainerFields();
+
+    /**
+     * @return {@code true} if the test class declares static fields to inject
+     */
+    boolean hasStaticFields();
+
+    /**
+     * @param testInstance instance of the test class
+     * @param registry registry of the test, to set to fields not annotated with {@link ContainerScope}
+     */
+    void setInstanceFields(Object testInstance, TeardownRegistry registry);
+
+    /**
+     * @param testInstance instance of the test class
+     * @param registry registry of the test class, to set to fields annotated with {@link ContainerScope}
+     */
+    void setContainerFields(Object testInstance, TeardownRegistry registry);
+
+    /**
+     * @param registry registry to set. {@code null} to clear the fields
+     */
+    void setStaticFields(TeardownRegistry registry);
+
+}
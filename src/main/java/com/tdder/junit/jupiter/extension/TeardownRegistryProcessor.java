@@ -0,0 +1,192 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Annotation processor which generates a {@link TeardownRegistryInjector} for each test class declaring
+ * a {@link TeardownRegistry} field.
+ *
+ * <p>Generated injectors set the fields directly, so {@link TeardownExtension} does not scan the class by reflection,
+ * and does not need {@code setAccessible}. Fields must not be {@code private}: classes with a {@code private}
+ * field are skipped, and injected by reflection as before.</p>
+ *
+ * <p>This processor is optional. It is not registered as a service, because it processes every type of
+ * a compilation: it runs only when it is named by {@code -processor}. With Gradle:</p>
+ * <pre>
+ * dependencies {
+ *     testAnnotationProcessor "com.tdder.junit:junit-teardown-extension:${version}"
+ * }
+ *
+ * tasks.named('compileTestJava', JavaCompile) {
+ *     options.compilerArgs += ['-processor', 'com.tdder.junit.jupiter.extension.TeardownRegistryProcessor']
+ * }
+ * </pre>
+ *
+ * @author manhole
+ */
+@SupportedAnnotationTypes("*")
+public class TeardownRegistryProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        final TypeElement registry = processingEnv.getElementUtils()
+                .getTypeElement(TeardownRegistry.class.getCanonicalName());
+        if (registry == null) {
+            // not on the classpath of this compilation
+            return false;
+        }
+        for (final TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processType(type, registry.asType());
+        }
+        // other processors may claim the annotations
+        return false;
+    }
+
+    private void processType(final TypeElement type, final TypeMirror registry) {
+        for (final TypeElement member : ElementFilter.typesIn(type.getEnclosedElements())) {
+            processType(member, registry);
+        }
+
+        final Types types = processingEnv.getTypeUtils();
+        final List<VariableElement> instanceFields = new ArrayList<>();
+        final List<VariableElement> containerFields = new ArrayList<>();
+        final List<VariableElement> staticFields = new ArrayList<>();
+        boolean declaresRegistry = false;
+        boolean hasPrivateField = false;
+        for (final VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            final Set<Modifier> modifiers = field.getModifiers();
+            // same condition as ReflectiveInjector
+            if (modifiers.contains(Modifier.FINAL) || !types.isAssignable(registry, types.erasure(field.asType()))) {
+                continue;
+            }
+            declaresRegistry |= types.isSameType(registry, field.asType());
+            hasPrivateField |= modifiers.contains(Modifier.PRIVATE);
+            if (modifiers.contains(Modifier.STATIC)) {
+                staticFields.add(field);
+            } else if (field.getAnnotation(ContainerScope.class) != null) {
+                containerFields.add(field);
+            } else {
+                instanceFields.add(field);
+            }
+        }
+        if (!declaresRegistry) {
+            return;
+        }
+        if (hasPrivateField || !isAccessibleFromPackage(type)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "TeardownRegistry fields are injected by reflection, because the class or a field is private",
+                    type);
+            return;
+        }
+        try {
+            writeInjector(type, instanceFields, containerFields, staticFields);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isAccessibleFromPackage(final TypeElement type) {
+        Element element = type;
+        while (element.getKind() != ElementKind.PACKAGE) {
+            if (!(element instanceof TypeElement)) {
+                return false;
+            }
+            final TypeElement t = (TypeElement) element;
+            if (t.getModifiers().contains(Modifier.PRIVATE)
+                    || (t.getNestingKind() != NestingKind.TOP_LEVEL && t.getNestingKind() != NestingKind.MEMBER)) {
+                return false;
+            }
+            element = t.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private void writeInjector(final TypeElement type, final List<VariableElement> instanceFields,
+            final List<VariableElement> containerFields, final List<VariableElement> staticFields)
+            throws IOException {
+        final PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        final String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        final String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        final String nestedName = packageName.isEmpty() ? binaryName
+                : binaryName.substring(packageName.length() + 1);
+        final String simpleName = nestedName + TeardownRegistryInjector.CLASS_NAME_SUFFIX;
+        final String typeName = type.getQualifiedName().toString();
+        final String registryName = TeardownRegistry.class.getCanonicalName();
+
+        final StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/** Generated by ").append(TeardownRegistryProcessor.class.getName()).append(". */\n");
+        source.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+        source.append("public final class ").append(simpleName).append(" implements ")
+                .append(TeardownRegistryInjector.class.getCanonicalName()).append(" {\n\n");
+
+        appendHas(source, "hasInstanceFields", instanceFields);
+        appendHas(source, "hasContainerFields", containerFields);
+        appendHas(source, "hasStaticFields", staticFields);
+        appendSetInstance(source, "setInstanceFields", typeName, instanceFields);
+        appendSetInstance(source, "setContainerFields", typeName, containerFields);
+
+        source.append("    @Override\n");
+        source.append("    public void setStaticFields(final ").append(registryName).append(" registry) {\n");
+        for (final VariableElement field : staticFields) {
+            source.append("        ").append(typeName).append('.').append(field.getSimpleName())
+                    .append(" = registry;\n");
+        }
+        source.append("    }\n\n");
+        source.append("}\n");
+
+        final String sourceName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(sourceName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private static void appendHas(final StringBuilder source, final String methodName,
+            final List<VariableElement> fields) {
+        source.append("    @Override\n");
+        source.append("    public boolean ").append(methodName).append("() {\n");
+        source.append("        return ").append(!fields.isEmpty()).append(";\n");
+        source.append("    }\n\n");
+    }
+
+    private static void appendSetInstance(final StringBuilder source, final String methodName, final String typeName,
+            final List<VariableElement> fields) {
+        source.append("    @Override\n");
+        source.append("    public void ").append(methodName).append("(final Object testInstance, final ")
+                .append(TeardownRegistry.class.getCanonicalName()).append(" registry) {\n");
+        for (final VariableElement field : fields) {
+            source.append("        ((").append(typeName).append(") testInstance).").append(field.getSimpleName())
+                    .append(" = registry;\n");
+        }
+        source.append("    }\n\n");
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries failed teardown objects in background, so the next test does not wait for the backoff.
+ *
+ * <p>A retry belongs to the scope which registered the teardown object. Failures of retries which used up all
+ * attempts are reported at the teardown of the enclosing container, or at the end of the engine execution.</p>
+ */
+class TeardownRetrier {
+
+    private final ScheduledExecutorService scheduler_ = Executors.newSingleThreadScheduledExecutor(
+            new TeardownThreadFactory("teardown-retry"));
+
+    /*
+     * Retries not reported yet. Guarded by this.
+     */
+    private final List<Retry> pending_ = new ArrayList<>();
+
+    /**
+     * @param failure failure of the first attempt
+     */
+    void retry(final String scopeId, final AutoCloseable task, final RetryPolicy policy, final Exception failure) {
+        final Retry retry = new Retry(scopeId, task, policy, failure);
+        synchronized (this) {
+            pending_.add(retry);
+        }
+        retry.schedule();
+    }
+
+    /**
+     * Waits for retries of the scopes in the container.
+     *
+     * @param containerId unique id of the container
+     * @return failures of retries which used up all attempts
+     */
+    List<Exception> await(final String containerId) throws InterruptedException {
+        return await(remove(containerId + "/"));
+    }
+
+    /**
+     * Waits for all retries, and stops the retry thread.
+     *
+     * @return failures of retries which used up all attempts
+     */
+    List<Exception> close() throws InterruptedException {
+        try {
+            return await(remove(""));
+        } finally {
+            scheduler_.shutdown();
+        }
+    }
+
+    private synchronized List<Retry> remove(final String scopeIdPrefix) {
+        final List<Retry> removed = new ArrayList<>();
+        for (final Iterator<Retry> it = pending_.iterator(); it.hasNext();) {
+            final Retry retry = it.next();
+            if (retry.scopeId_.startsWith(scopeIdPrefix)) {
+                removed.add(retry);
+                it.remove();
+            }
+        }
+        return removed;
+    }
+
+    private static List<Exception> await(final List<Retry> retries) throws InterruptedException {
+        final List<Exception> failures = new ArrayList<>();
+        for (final Retry retry : retries) {
+            final Exception failure = retry.await();
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+        return failures;
+    }
+
+    private class Retry implements Runnable {
+
+        private final String scopeId_;
+
+        private final AutoCloseable task_;
+
+        private final RetryPolicy policy_;
+
+        /*
+         * Failure of the first attempt. Failures of retries are added as suppressed.
+         */
+        private final Exception failure_;
+
+        private final CountDownLatch done_ = new CountDownLatch(1);
+
+        private int attempts_ = 1;
+
+        private boolean succeeded_;
+
+        Retry(final String scopeId, final AutoCloseable task, final RetryPolicy policy, final Exception failure) {
+            scopeId_ = scopeId;
+            task_ = task;
+            policy_ = policy;
+            failure_ = failure;
+        }
+
+        void schedule() {
+            scheduler_.schedule(this, policy_.delayNanos(attempts_), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            attempts_++;
+            try {
+                task_.close();
+                succeeded_ = true;
+            } catch (final Exception e) {
+                failure_.addSuppressed(e);
+                if (attempts_ < policy_.maxAttempts()) {
+                    schedule();
+                    return;
+                }
+            }
+            done_.countDown();
+        }
+
+        /**
+         * @return null if succeeded
+         */
+        Exception await() throws InterruptedException {
+            done_.await();
+            return succeeded_ ? null : failure_;
+        }
+
+    }
+
+}
@@ -0,0 +1,437 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * State shared by all registries of an engine execution.
+ *
+ * <p>Stored in the root {@link ExtensionContext}, so it is closed at the end of the engine execution.</p>
+ */
+class TeardownSession implements ExtensionContext.Store.CloseableResource {
+
+    private static final long DEFAULT_GRACE_PERIOD_MILLIS = 10_000L;
+
+    private static final long DEFAULT_THREAD_LEAK_GRACE_PERIOD_MILLIS = 100L;
+
+    private static final int DEFAULT_TRACE_RECORDS = 1 << 18;
+
+    private static final String PARALLEL_EXECUTION_PROPERTY_NAME = "junit.jupiter.execution.parallel.enabled";
+
+    private final boolean deduplicate_;
+
+    /*
+     * null if the journal is disabled.
+     */
+    private final TeardownJournal journal_;
+
+    private final boolean deleteInBackground_;
+
+    private final long gracePeriodNanos_;
+
+    private final boolean fastExit_;
+
+    private final int concurrency_;
+
+    /*
+     * null if no listener is present.
+     */
+    private final CompositeTeardownListener listener_;
+
+    /*
+     * null if history is disabled.
+     */
+    private final TeardownHistory history_;
+
+    private final TeardownBudget budget_;
+
+    /*
+     * null if leak detection is disabled.
+     */
+    private final LeakDetector leakDetector_;
+
+    /*
+     * null if thread leak detection is disabled.
+     */
+    private final ThreadLeakDetector threadLeakDetector_;
+
+    private final boolean countFileDescriptors_;
+
+    /*
+     * null if tracing is disabled.
+     */
+    private final TeardownTracer tracer_;
+
+    private ExecutorService teardownExecutor_;
+
+    private ExecutorService background_;
+
+    /*
+     * null until a teardown object is retried.
+     */
+    private TeardownRetrier retrier_;
+
+    private final ExceptionHandler backgroundFailures_ = new ExceptionHandler.CollectStrategy();
+
+    private final ExtensionContext root_;
+
+    /*
+     * Registry of @SessionScope. null until requested. Guarded by this.
+     */
+    private TeardownRegistryImpl registry_;
+
+    TeardownSession(final boolean deduplicate, final TeardownJournal journal, final boolean deleteInBackground,
+            final long gracePeriodNanos, final boolean fastExit, final int concurrency,
+            final CompositeTeardownListener listener,
+            final TeardownHistory history, final TeardownBudget budget, final LeakDetector leakDetector,
+            final ThreadLeakDetector threadLeakDetector, final boolean countFileDescriptors,
+            final TeardownTracer tracer, final ExtensionContext root) {
+        deduplicate_ = deduplicate;
+        journal_ = journal;
+        deleteInBackground_ = deleteInBackground;
+        gracePeriodNanos_ = gracePeriodNanos;
+        fastExit_ = fastExit;
+        concurrency_ = concurrency;
+        listener_ = listener;
+        history_ = history;
+        budget_ = budget;
+        leakDetector_ = leakDetector;
+        threadLeakDetector_ = threadLeakDetector;
+        countFileDescriptors_ = countFileDescriptors;
+        tracer_ = tracer;
+        root_ = root;
+    }
+
+    static TeardownSession open(final ExtensionContext root) {
+        final boolean deduplicate = root.getConfigurationParameter(TeardownExtension.DEDUPLICATE_PROPERTY_NAME,
+                Boolean::parseBoolean).orElse(false);
+        final boolean deleteInBackground = root.getConfigurationParameter(
+                TeardownExtension.TEMP_DIRECTORY_DELETE_IN_BACKGROUND_PROPERTY_NAME, Boolean::parseBoolean)
+                .orElse(false);
+        final long gracePeriodMillis = root.getConfigurationParameter(TeardownExtension.GRACE_PERIOD_PROPERTY_NAME,
+                Long::parseLong).orElse(DEFAULT_GRACE_PERIOD_MILLIS);
+        final Optional<Path> journalDirectory = root.getConfigurationParameter(
+                TeardownExtension.JOURNAL_DIRECTORY_PROPERTY_NAME, Paths::get);
+        final TeardownJournal journal = journalDirectory.isPresent() ? openJournal(root, journalDirectory.get())
+                : null;
+        final boolean fastExit = root.getConfigurationParameter(TeardownExtension.FAST_EXIT_PROPERTY_NAME,
+                Boolean::parseBoolean).orElse(false);
+        final int concurrency = root.getConfigurationParameter(TeardownExtension.CONCURRENCY_PROPERTY_NAME,
+                Integer::parseInt).orElse(Runtime.getRuntime().availableProcessors());
+        if (concurrency < 1) {
+            throw new IllegalArgumentException(
+                    TeardownExtension.CONCURRENCY_PROPERTY_NAME + " must be positive: " + concurrency);
+        }
+        final Optional<Long> gcCycles = root.getConfigurationParameter(
+                TeardownExtension.LEAK_DETECTION_GC_CYCLES_PROPERTY_NAME, Long::parseLong);
+        final LeakDetector leakDetector = gcCycles.isPresent() ? new LeakDetector(gcCycles.get()) : null;
+        final List<TeardownListener> listeners = loadListeners(root);
+        if (leakDetector != null) {
+            listeners.add(leakDetector);
+        }
+        final Optional<Path> traceDirectory = root.getConfigurationParameter(
+                TeardownExtension.TRACE_DIRECTORY_PROPERTY_NAME, Paths::get);
+        final TeardownTracer tracer = traceDirectory.isPresent() ? openTracer(root, traceDirectory.get()) : null;
+        if (tracer != null) {
+            listeners.add(tracer);
+        }
+        final CompositeTeardownListener listener = CompositeTeardownListener.of(listeners);
+        final Optional<Path> historyFile = root.getConfigurationParameter(
+                TeardownExtension.HISTORY_FILE_PROPERTY_NAME, Paths::get);
+        final TeardownHistory history = historyFile.isPresent() ? loadHistory(historyFile.get()) : null;
+        // no-op on platforms without /proc
+        final boolean countFileDescriptors = root.getConfigurationParameter(
+                TeardownExtension.FILE_DESCRIPTORS_ENABLED_PROPERTY_NAME, Boolean::parseBoolean).orElse(false)
+                && FileDescriptorCounter.isAvailable();
+        return new TeardownSession(deduplicate, journal, deleteInBackground,
+                TimeUnit.MILLISECONDS.toNanos(gracePeriodMillis), fastExit, concurrency, listener, history,
+                TeardownBudget.of(root), leakDetector, threadLeakDetector(root), countFileDescriptors, tracer,
+                root);
+    }
+
+    private static TeardownTracer openTracer(final ExtensionContext root, final Path directory) {
+        final int records = root.getConfigurationParameter(TeardownExtension.TRACE_RECORDS_PROPERTY_NAME,
+                Integer::parseInt).orElse(DEFAULT_TRACE_RECORDS);
+        try {
+            return TeardownTracer.open(directory, records);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ThreadLeakDetector threadLeakDetector(final ExtensionContext root) {
+        final String mode = root.getConfigurationParameter(TeardownExtension.THREAD_LEAK_PROPERTY_NAME)
+                .orElse("off");
+        final long gracePeriodMillis = root.getConfigurationParameter(
+                TeardownExtension.THREAD_LEAK_GRACE_PERIOD_PROPERTY_NAME, Long::parseLong)
+                .orElse(DEFAULT_THREAD_LEAK_GRACE_PERIOD_MILLIS);
+        final long gracePeriodNanos = TimeUnit.MILLISECONDS.toNanos(gracePeriodMillis);
+        switch (mode) {
+        case "off":
+            return null;
+        case "report":
+            return new ThreadLeakDetector(gracePeriodNanos, false);
+        case "interrupt":
+            if (root.getConfigurationParameter(PARALLEL_EXECUTION_PROPERTY_NAME, Boolean::parseBoolean)
+                    .orElse(false)) {
+                throw new IllegalArgumentException(TeardownExtension.THREAD_LEAK_PROPERTY_NAME
+                        + "=interrupt cannot be used with " + PARALLEL_EXECUTION_PROPERTY_NAME
+                        + "=true, because threads of tests running at the same time would be interrupted");
+            }
+            return new ThreadLeakDetector(gracePeriodNanos, true);
+        default:
+            throw new IllegalArgumentException(
+                    TeardownExtension.THREAD_LEAK_PROPERTY_NAME + " must be off, report or interrupt: " + mode);
+        }
+    }
+
+    private static TeardownHistory loadHistory(final Path file) {
+        try {
+            return TeardownHistory.load(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<TeardownListener> loadListeners(final ExtensionContext root) {
+        final List<TeardownListener> listeners = new ArrayList<>();
+        if (root.getConfigurationParameter(TeardownExtension.JMX_ENABLED_PROPERTY_NAME, Boolean::parseBoolean)
+                .orElse(false)) {
+            listeners.add(TeardownMetrics.register());
+        }
+        for (final TeardownListener listener : ServiceLoader.load(TeardownListener.class)) {
+            listeners.add(listener);
+        }
+        final Optional<String> classNames = root.getConfigurationParameter(
+                TeardownExtension.LISTENERS_PROPERTY_NAME);
+        if (classNames.isPresent()) {
+            for (final String className : classNames.get().split(",")) {
+                if (!className.trim().isEmpty()) {
+                    listeners.add(newListener(className.trim()));
+                }
+            }
+        }
+        return listeners;
+    }
+
+    private static TeardownListener newListener(final String className) {
+        try {
+            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            final Class<?> listenerClass = Class.forName(className, true, classLoader);
+            return (TeardownListener) listenerClass.getConstructor().newInstance();
+        } catch (final ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Failed to create TeardownListener: " + className, e);
+        }
+    }
+
+    private static TeardownJournal openJournal(final ExtensionContext root, final Path directory) {
+        try {
+            // replay teardown objects left by killed runs, before this run starts to write its own journal.
+            final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+            TeardownJournal.reap(directory, exceptionHandler);
+            try {
+                exceptionHandler.throwIfNeeded();
+            } catch (final Exception e) {
+                // teardown of a previous run should not fail this run.
+                root.publishReportEntry("teardown.journal.reap.failure", e.toString());
+            }
+            return TeardownJournal.open(directory);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    TeardownRegistryImpl createRegistry(final String scopeId) {
+        return new TeardownRegistryImpl(this, scopeId);
+    }
+
+    /**
+     * @return registry of {@link SessionScope}, which is torn down at the end of the engine execution
+     */
+    synchronized TeardownRegistryImpl registry() {
+        if (registry_ == null) {
+            registry_ = createRegistry(root_.getUniqueId());
+        }
+        return registry_;
+    }
+
+    boolean deduplicate() {
+        return deduplicate_;
+    }
+
+    TeardownJournal journal() {
+        return journal_;
+    }
+
+    boolean deleteInBackground() {
+        return deleteInBackground_;
+    }
+
+    long gracePeriodNanos() {
+        return gracePeriodNanos_;
+    }
+
+    /**
+     * @return maximum number of teardown objects of a concurrent group executed at a time
+     */
+    int concurrency() {
+        return concurrency_;
+    }
+
+    TeardownListener listener() {
+        return listener_;
+    }
+
+    TeardownBudget budget() {
+        return budget_;
+    }
+
+    LeakDetector leakDetector() {
+        return leakDetector_;
+    }
+
+    ThreadLeakDetector threadLeakDetector() {
+        return threadLeakDetector_;
+    }
+
+    boolean countFileDescriptors() {
+        return countFileDescriptors_;
+    }
+
+    TeardownHistory history() {
+        return history_;
+    }
+
+    /**
+     * @return executor for concurrent teardown. Virtual threads on Java 21+
+     */
+    synchronized ExecutorService teardownExecutor() {
+        if (teardownExecutor_ == null) {
+            teardownExecutor_ = TeardownThreads.newExecutor();
+        }
+        return teardownExecutor_;
+    }
+
+    synchronized void submitBackground(final Runnable task) {
+        if (background_ == null) {
+            background_ = Executors.newSingleThreadExecutor(new TeardownThreadFactory("teardown-background"));
+        }
+        background_.execute(task);
+    }
+
+    /**
+     * Retries a failed teardown object in background.
+     */
+    synchronized void retry(final String scopeId, final AutoCloseable task, final RetryPolicy policy,
+            final Exception failure) {
+        if (retrier_ == null) {
+            retrier_ = new TeardownRetrier();
+        }
+        retrier_.retry(scopeId, task, policy, failure);
+    }
+
+    /**
+     * @param containerId unique id of the container
+     * @return failures of retries of the scopes in the container, which used up all attempts
+     */
+    List<Exception> awaitRetries(final String containerId) throws InterruptedException {
+        final TeardownRetrier retrier;
+        synchronized (this) {
+            retrier = retrier_;
+        }
+        // do not hold the lock while waiting, so that other scopes can start retries.
+        return retrier != null ? retrier.await(containerId) : Collections.emptyList();
+    }
+
+    /**
+     * Failures of background tasks and listeners are thrown at the end of the engine execution.
+     */
+    synchronized void addBackgroundFailure(final Exception e) {
+        backgroundFailures_.add(e);
+    }
+
+    @Override
+    public void close() throws Exception {
+        final TeardownRegistryImpl registry;
+        synchronized (this) {
+            registry = registry_;
+            registry_ = null;
+        }
+        if (registry != null) {
+            // the last teardown before the JVM exits, so in-process teardown objects can be left to the exit.
+            final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+            try {
+                registry.teardown(exceptionHandler, fastExit_);
+                exceptionHandler.throwIfNeeded();
+            } catch (final Exception e) {
+                addBackgroundFailure(e);
+            }
+        }
+        final ExecutorService background;
+        final TeardownRetrier retrier;
+        synchronized (this) {
+            background = background_;
+            background_ = null;
+            retrier = retrier_;
+            retrier_ = null;
+            if (teardownExecutor_ != null) {
+                teardownExecutor_.shutdown();
+                teardownExecutor_ = null;
+            }
+        }
+        try {
+            if (retrier != null) {
+                // retries which are not reported by their containers
+                for (final Exception e : retrier.close()) {
+                    addBackgroundFailure(e);
+                }
+            }
+            if (background != null) {
+                // wait for background deletions, before the JVM exits.
+                background.shutdown();
+                background.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            if (leakDetector_ != null) {
+                // including the ones closed by the last scopes, which have not seen enough GC cycles.
+                for (final String leak : leakDetector_.close()) {
+                    root_.publishReportEntry(LeakDetector.REPORT_KEY, leak);
+                }
+            }
+        } finally {
+            try {
+                if (journal_ != null) {
+                    journal_.close();
+                }
+            } finally {
+                if (tracer_ != null) {
+                    tracer_.close();
+                }
+            }
+        }
+        if (history_ != null) {
+            history_.save();
+        }
+        if (listener_ != null) {
+            // not failures of teardown objects, so reported apart from them.
+            for (final Exception e : listener_.failures()) {
+                addBackgroundFailure(e);
+            }
+        }
+        synchronized (this) {
+            backgroundFailures_.throwIfNeeded();
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the daemon platform threads of this extension.
+ *
+ * <p>Created threads are remembered by reference, so that {@link ThreadLeakDetector} does not report them,
+ * whatever threads of tests are named.</p>
+ */
+final class TeardownThreadFactory implements ThreadFactory {
+
+    private static final Set<Thread> THREADS = Collections.synchronizedSet(
+            Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private final String name_;
+
+    TeardownThreadFactory(final String name) {
+        name_ = name;
+    }
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, name_);
+        thread.setDaemon(true);
+        THREADS.add(thread);
+        return thread;
+    }
+
+    /**
+     * @return {@code true} if the thread was created by this extension
+     */
+    static boolean isTeardownThread(final Thread thread) {
+        return THREADS.contains(thread);
+    }
+
+}
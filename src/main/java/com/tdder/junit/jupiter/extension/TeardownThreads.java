@@ -0,0 +1,23 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads for concurrent teardown.
+ *
+ * <p>Java 21 version of this class is in {@code META-INF/versions/21}, and uses virtual threads.</p>
+ */
+final class TeardownThreads {
+
+    private TeardownThreads() {
+    }
+
+    /**
+     * @return executor which starts a platform thread per blocking task. Idle threads are reused.
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newCachedThreadPool(new TeardownThreadFactory("teardown"));
+    }
+
+}
@@ -0,0 +1,252 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Converts a teardown trace to CSV or Chrome trace-event JSON.
+ *
+ * <p>Trace files are written when {@link TeardownExtension#TRACE_DIRECTORY_PROPERTY_NAME} is specified.</p>
+ *
+ * <pre>
+ * java -cp junit-teardown-extension.jar com.tdder.junit.jupiter.extension.TeardownTraceDecoder \
+ *     chrome build/teardown-trace/teardown-&lt;id&gt;.trace trace.json
+ * </pre>
+ *
+ * <p>The JSON can be opened by {@code chrome://tracing} or Perfetto.</p>
+ *
+ * @author manhole
+ */
+public final class TeardownTraceDecoder {
+
+    private static final String[] EVENTS = { null, "registered", "closing", "closed", "failed" };
+
+    private TeardownTraceDecoder() {
+    }
+
+    /**
+     * @param args {@code csv} or {@code chrome}, trace file, and optional output file (default is standard output)
+     * @throws IOException if failed to read or write
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2 || 3 < args.length || !(args[0].equals("csv") || args[0].equals("chrome"))) {
+            System.err.println("Usage: TeardownTraceDecoder csv|chrome <trace file> [output file]");
+            System.exit(2);
+            return;
+        }
+        final List<Record> records = read(Paths.get(args[1]));
+        if (args.length == 3) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+                write(args[0], records, out);
+            }
+        } else {
+            // do not close the standard output
+            final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            write(args[0], records, out);
+            out.flush();
+        }
+    }
+
+    private static void write(final String format, final List<Record> records, final Writer out)
+            throws IOException {
+        if (format.equals("csv")) {
+            writeCsv(records, out);
+        } else {
+            writeChromeTrace(records, out);
+        }
+    }
+
+    /**
+     * @return records in order of sequence. The oldest ones are missing if the ring has wrapped
+     */
+    static List<Record> read(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < TeardownTracer.HEADER_SIZE || buffer.getInt(0) != TeardownTracer.MAGIC) {
+                throw new IOException("Not a teardown trace: " + file);
+            }
+            final int version = buffer.getInt(Integer.BYTES);
+            if (version != TeardownTracer.VERSION) {
+                throw new IOException("Unsupported version " + version + ": " + file);
+            }
+            final int recordSize = buffer.getInt(2 * Integer.BYTES);
+            final int capacity = buffer.getInt(3 * Integer.BYTES);
+            final int ringEnd = TeardownTracer.HEADER_SIZE + capacity * recordSize;
+            final Map<Integer, String> names = readNames(buffer, ringEnd);
+
+            final List<Record> records = new ArrayList<>();
+            for (int position = TeardownTracer.HEADER_SIZE; position < ringEnd; position += recordSize) {
+                final long sequence = buffer.getLong(position);
+                if (sequence == 0L) {
+                    // never written, or torn by a crash
+                    continue;
+                }
+                final int scope = buffer.getInt(position + 4 * Long.BYTES);
+                final int type = buffer.getInt(position + 4 * Long.BYTES + 2 * Integer.BYTES);
+                records.add(new Record(sequence, buffer.getLong(position + Long.BYTES),
+                        buffer.getLong(position + 2 * Long.BYTES), buffer.getLong(position + 3 * Long.BYTES),
+                        name(names, scope), buffer.getInt(position + 4 * Long.BYTES + Integer.BYTES),
+                        name(names, type), buffer.getInt(position + 4 * Long.BYTES + 3 * Integer.BYTES)));
+            }
+            records.sort(Comparator.comparingLong(r -> r.sequence_));
+            return records;
+        }
+    }
+
+    /*
+     * The dictionary is written at close, so it is missing if the JVM was killed.
+     */
+    private static Map<Integer, String> readNames(final ByteBuffer buffer, final int ringEnd) throws IOException {
+        final Map<Integer, String> names = new HashMap<>();
+        if (buffer.limit() <= ringEnd) {
+            return names;
+        }
+        final byte[] bytes = new byte[buffer.limit() - ringEnd];
+        ((ByteBuffer) buffer.duplicate().position(ringEnd)).get(bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                final int id = in.readInt();
+                names.put(id, in.readUTF());
+            }
+        }
+        return names;
+    }
+
+    private static String name(final Map<Integer, String> names, final int id) {
+        final String name = names.get(id);
+        return name != null ? name : "#" + id;
+    }
+
+    static void writeCsv(final List<Record> records, final Writer out) throws IOException {
+        out.write("sequence,timestampNanos,threadId,event,scope,type,task,durationNanos\n");
+        for (final Record r : records) {
+            out.write(r.sequence_ + "," + r.timestampNanos_ + "," + r.threadId_ + "," + r.event() + ","
+                    + csv(r.scope_) + "," + csv(r.type_) + "," + r.task_ + "," + r.durationNanos_ + "\n");
+        }
+    }
+
+    /**
+     * Closed and failed ones are complete events with their durations. Registrations are instant events.
+     */
+    static void writeChromeTrace(final List<Record> records, final Writer out) throws IOException {
+        out.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (final Record r : records) {
+            final String phase;
+            final long startNanos;
+            switch (r.event_) {
+            case TeardownTracer.REGISTERED:
+                phase = "\"ph\":\"i\",\"s\":\"t\"";
+                startNanos = r.timestampNanos_;
+                break;
+            case TeardownTracer.CLOSED:
+            case TeardownTracer.FAILED:
+                phase = "\"ph\":\"X\",\"dur\":" + micros(r.durationNanos_);
+                startNanos = r.timestampNanos_ - r.durationNanos_;
+                break;
+            default:
+                // covered by the complete event
+                continue;
+            }
+            out.write(first ? "\n" : ",\n");
+            first = false;
+            out.write("{\"name\":" + json(r.type_) + ",\"cat\":\"" + r.event() + "\"," + phase
+                    + ",\"ts\":" + micros(startNanos) + ",\"pid\":1,\"tid\":" + r.threadId_
+                    + ",\"args\":{\"scope\":" + json(r.scope_) + ",\"task\":" + r.task_ + "}}");
+        }
+        out.write("\n]}\n");
+    }
+
+    private static String micros(final long nanos) {
+        return String.format(Locale.ROOT, "%d.%03d", nanos / 1000L, Math.abs(nanos % 1000L));
+    }
+
+    private static String csv(final String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(final String value) {
+        final StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    static final class Record {
+
+        private final long sequence_;
+
+        private final long timestampNanos_;
+
+        private final long threadId_;
+
+        private final long durationNanos_;
+
+        private final String scope_;
+
+        private final int task_;
+
+        private final String type_;
+
+        private final int event_;
+
+        Record(final long sequence, final long timestampNanos, final long threadId, final long durationNanos,
+                final String scope, final int task, final String type, final int event) {
+            sequence_ = sequence;
+            timestampNanos_ = timestampNanos;
+            threadId_ = threadId;
+            durationNanos_ = durationNanos;
+            scope_ = scope;
+            task_ = task;
+            type_ = type;
+            event_ = event;
+        }
+
+        String event() {
+            return 0 < event_ && event_ < EVENTS.length ? EVENTS[event_] : Integer.toString(event_);
+        }
+
+        int task() {
+            return task_;
+        }
+
+        String scope() {
+            return scope_;
+        }
+
+        String type() {
+            return type_;
+        }
+
+    }
+
+}
@@ -0,0 +1,244 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every registration and close into a memory-mapped ring buffer, for offline analysis.
+ *
+ * <p>Records have a fixed size, and a thread claims a slot by incrementing an atomic cursor, then writes the slot
+ * without a lock. So tracing does not serialize threads, and does not do I/O on the teardown path.
+ * When the buffer is full, the oldest records are overwritten.</p>
+ *
+ * <p>File layout: a header, the ring of records, and a dictionary of scope ids and task types written at close.
+ * Record layout: {@code [long sequence][long timestampNanos][long threadId][long durationNanos][int scope]
+ * [int task][int type][int event]}. The sequence starts at 1, and is written last, so a slot being written reads
+ * as empty. Timestamps are relative to the start of the trace.</p>
+ *
+ * <p>Task ids are sequential from 1. A task keeps its id from its first event to its closed or failed event,
+ * so a retried task gets a new id for each attempt. Identity hash codes are not used, because they collide.</p>
+ *
+ * @see TeardownTraceDecoder
+ */
+class TeardownTracer implements TeardownListener {
+
+    static final String FILE_SUFFIX = ".trace";
+
+    static final int MAGIC = 0x54524443;
+
+    static final int VERSION = 2;
+
+    /*
+     * [int magic][int version][int recordSize][int capacity][long startEpochMillis][long startNanos]
+     */
+    static final int HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+    static final int RECORD_SIZE = 4 * Long.BYTES + 4 * Integer.BYTES;
+
+    static final int REGISTERED = 1;
+
+    static final int CLOSING = 2;
+
+    static final int CLOSED = 3;
+
+    static final int FAILED = 4;
+
+    private final Path path_;
+
+    private final FileChannel channel_;
+
+    private final MappedByteBuffer buffer_;
+
+    private final int capacity_;
+
+    private final long startNanos_;
+
+    private final AtomicLong cursor_ = new AtomicLong();
+
+    /*
+     * Ids of scope ids and type names. Looked up without a lock once known.
+     */
+    private final Map<String, Integer> names_ = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextNameId_ = new AtomicInteger();
+
+    /*
+     * Ids of tasks which have not been closed yet.
+     */
+    private final Map<Identity, Integer> taskIds_ = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextTaskId_ = new AtomicInteger(1);
+
+    /*
+     * The buffer is unmapped at close, and writing to it then would crash the JVM.
+     */
+    private volatile boolean closed_;
+
+    private TeardownTracer(final Path path, final FileChannel channel, final int capacity) throws IOException {
+        path_ = path;
+        channel_ = channel;
+        capacity_ = capacity;
+        buffer_ = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        startNanos_ = System.nanoTime();
+        buffer_.putInt(0, MAGIC);
+        buffer_.putInt(Integer.BYTES, VERSION);
+        buffer_.putInt(2 * Integer.BYTES, RECORD_SIZE);
+        buffer_.putInt(3 * Integer.BYTES, capacity);
+        buffer_.putLong(4 * Integer.BYTES, System.currentTimeMillis());
+        buffer_.putLong(4 * Integer.BYTES + Long.BYTES, startNanos_);
+    }
+
+    /**
+     * @param capacity number of records kept
+     */
+    static TeardownTracer open(final Path directory, final int capacity) throws IOException {
+        // a mapped buffer is at most 2 GiB
+        if (capacity <= 0 || (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE < capacity) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        Files.createDirectories(directory);
+        final Path path = directory.resolve("teardown-" + UUID.randomUUID() + FILE_SUFFIX);
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new TeardownTracer(path, channel, capacity);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path path() {
+        return path_;
+    }
+
+    @Override
+    public void registered(final String scopeId, final Object task) {
+        append(REGISTERED, scopeId, taskId(task, false), task, 0L);
+    }
+
+    @Override
+    public void closing(final String scopeId, final Object task) {
+        append(CLOSING, scopeId, taskId(task, false), task, 0L);
+    }
+
+    @Override
+    public void closed(final String scopeId, final Object task, final long durationNanos) {
+        append(CLOSED, scopeId, taskId(task, true), task, durationNanos);
+    }
+
+    @Override
+    public void failed(final String scopeId, final Object task, final long durationNanos, final Exception exception) {
+        append(FAILED, scopeId, taskId(task, true), task, durationNanos);
+    }
+
+    private void append(final int event, final String scopeId, final int taskId, final Object task,
+            final long durationNanos) {
+        if (closed_) {
+            return;
+        }
+        final long timestamp = System.nanoTime() - startNanos_;
+        final long sequence = cursor_.incrementAndGet();
+        final int position = HEADER_SIZE + (int) ((sequence - 1) % capacity_) * RECORD_SIZE;
+        // absolute puts only, so that threads do not share the position of the buffer.
+        final ByteBuffer buffer = buffer_;
+        buffer.putLong(position, 0L);
+        buffer.putLong(position + Long.BYTES, timestamp);
+        buffer.putLong(position + 2 * Long.BYTES, Thread.currentThread().getId());
+        buffer.putLong(position + 3 * Long.BYTES, durationNanos);
+        buffer.putInt(position + 4 * Long.BYTES, nameId(scopeId));
+        buffer.putInt(position + 4 * Long.BYTES + Integer.BYTES, taskId);
+        buffer.putInt(position + 4 * Long.BYTES + 2 * Integer.BYTES, nameId(task.getClass().getName()));
+        buffer.putInt(position + 4 * Long.BYTES + 3 * Integer.BYTES, event);
+        buffer.putLong(position, sequence);
+    }
+
+    /**
+     * @param last {@code true} for the closed or failed event, after which the task is forgotten
+     */
+    private int taskId(final Object task, final boolean last) {
+        final Identity key = new Identity(task);
+        final Integer id = last ? taskIds_.remove(key) : taskIds_.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (last) {
+            // closed without earlier events
+            return nextTaskId_.getAndIncrement();
+        }
+        return taskIds_.computeIfAbsent(key, k -> nextTaskId_.getAndIncrement());
+    }
+
+    private int nameId(final String name) {
+        final Integer id = names_.get(name);
+        if (id != null) {
+            return id;
+        }
+        return names_.computeIfAbsent(name, n -> nextNameId_.getAndIncrement());
+    }
+
+    /**
+     * Writes the dictionary after the ring, unmaps the ring, and closes the file. The trace file is kept.
+     */
+    void close() throws IOException {
+        closed_ = true;
+        taskIds_.clear();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(names_.size());
+            for (final Map.Entry<String, Integer> e : names_.entrySet()) {
+                out.writeInt(e.getValue());
+                out.writeUTF(e.getKey());
+            }
+        }
+        try {
+            channel_.write(ByteBuffer.wrap(bytes.toByteArray()), HEADER_SIZE + (long) capacity_ * RECORD_SIZE);
+        } finally {
+            try {
+                // otherwise the mapping lives until the buffer is collected, and the file can not be deleted on
+                // Windows until then.
+                BufferCleaner.clean(buffer_);
+            } catch (final Exception e) {
+                throw new IOException("Failed to unmap " + path_, e);
+            } finally {
+                channel_.close();
+            }
+        }
+    }
+
+    /*
+     * Key by identity, not by equals() of the task.
+     */
+    private static final class Identity {
+
+        private final Object object_;
+
+        Identity(final Object object) {
+            object_ = object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object_);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Identity && ((Identity) obj).object_ == object_;
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds threads which were started in a scope and are still alive after its teardown.
+ *
+ * <p>A snapshot is the set of live platform threads, enumerated from the root thread group without stack traces.
+ * Threads started by this extension or by JUnit, and workers of fork/join pools are not reported.
+ * Virtual threads of this extension on Java 21 are not in snapshots.</p>
+ *
+ * <p>In {@code interrupt} mode, tests must not run in parallel, because threads of other tests which run at the same
+ * time would look like leaks of the scope.</p>
+ */
+class ThreadLeakDetector {
+
+    static final String REPORT_KEY = "teardown.threadLeak";
+
+    private final long gracePeriodNanos_;
+
+    private final boolean interrupt_;
+
+    /*
+     * A leaked thread is reported by the scope which started it, not again by enclosing scopes.
+     */
+    private final Set<Thread> reported_ = Collections.newSetFromMap(new WeakHashMap<>());
+
+    ThreadLeakDetector(final long gracePeriodNanos, final boolean interrupt) {
+        gracePeriodNanos_ = gracePeriodNanos;
+        interrupt_ = interrupt;
+    }
+
+    Set<Thread> snapshot() {
+        final Set<Thread> snapshot = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(snapshot, liveThreads());
+        return snapshot;
+    }
+
+    /**
+     * Waits up to the grace period for threads started after the snapshot, then reports the alive ones.
+     *
+     * @return leaked threads. each one is "name (id)", followed by " interrupted" if interrupted
+     */
+    List<String> check(final Set<Thread> snapshot) throws InterruptedException {
+        final List<Thread> started = new ArrayList<>();
+        for (final Thread thread : liveThreads()) {
+            if (!snapshot.contains(thread) && !isIgnored(thread)) {
+                started.add(thread);
+            }
+        }
+        if (started.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final long deadline = System.nanoTime() + gracePeriodNanos_;
+        final List<String> leaks = new ArrayList<>();
+        for (final Thread thread : started) {
+            final long remaining = deadline - System.nanoTime();
+            if (0L < remaining) {
+                TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+            }
+            if (!thread.isAlive() || !markReported(thread)) {
+                continue;
+            }
+            if (interrupt_) {
+                thread.interrupt();
+                leaks.add(describe(thread) + " interrupted");
+            } else {
+                leaks.add(describe(thread));
+            }
+        }
+        return leaks;
+    }
+
+    private synchronized boolean markReported(final Thread thread) {
+        return reported_.add(thread);
+    }
+
+    private static String describe(final Thread thread) {
+        return thread.getName() + " (" + thread.getId() + ")";
+    }
+
+    private static boolean isIgnored(final Thread thread) {
+        // threads of this extension and of JUnit itself
+        if (thread == Thread.currentThread() || TeardownThreadFactory.isTeardownThread(thread)
+                || thread.getName().startsWith("junit-")) {
+            return true;
+        }
+        // pools start workers on demand, e.g. the common pool and the pool of JUnit parallel execution.
+        return thread instanceof ForkJoinWorkerThread;
+    }
+
+    private static Thread[] liveThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        // threads may be started during enumeration, so retry with a larger array until it fits.
+        Thread[] threads = new Thread[root.activeCount() + 16];
+        int count;
+        while ((count = root.enumerate(threads, true)) == threads.length) {
+            threads = new Thread[threads.length * 2];
+        }
+        final Thread[] live = new Thread[count];
+        System.arraycopy(threads, 0, live, 0, count);
+        return live;
+    }
+
+}
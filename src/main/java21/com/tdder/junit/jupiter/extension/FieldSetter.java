@@ -0,0 +1,53 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Sets a {@link TeardownRegistry} field of a test class.
+ *
+ * <p>Java 21 version: uses a {@link VarHandle}, which needs no access check per call.
+ * Falls back to reflection, when the package of the test class is not open to this library.</p>
+ */
+final class FieldSetter {
+
+    private final VarHandle handle_;
+
+    private final boolean static_;
+
+    private final Field field_;
+
+    private FieldSetter(final VarHandle handle, final boolean isStatic, final Field field) {
+        handle_ = handle;
+        static_ = isStatic;
+        field_ = field;
+    }
+
+    static FieldSetter of(final Field field) {
+        final boolean isStatic = Modifier.isStatic(field.getModifiers());
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(field.getDeclaringClass(),
+                    MethodHandles.lookup());
+            return new FieldSetter(lookup.unreflectVarHandle(field), isStatic, null);
+        } catch (final IllegalAccessException e) {
+            field.setAccessible(true);
+            return new FieldSetter(null, isStatic, field);
+        }
+    }
+
+    /**
+     * @param target test instance. {@code null} for a static field
+     */
+    void set(final Object target, final Object value) throws IllegalAccessException {
+        if (handle_ == null) {
+            field_.set(target, value);
+        } else if (static_) {
+            handle_.set(value);
+        } else {
+            handle_.set(target, value);
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.tdder.junit.jupiter.extension;
+
+/**
+ * Finds the code which registered a teardown object.
+ *
+ * <p>Java 21 version: walks only the top frames lazily, instead of capturing the whole stack.</p>
+ */
+final class RegistrationSite {
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private RegistrationSite() {
+    }
+
+    /**
+     * @return first frame outside of the registry. {@code null} if not found
+     */
+    static StackTraceElement find() {
+        return WALKER.walk(frames -> frames
+                .filter(frame -> !TeardownHistory.isRegistryFrame(frame.getClassName()))
+                .findFirst()
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .orElse(null));
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads for concurrent teardown.
+ *
+ * <p>Java 21 version: a virtual thread per task. Teardown objects mostly block on I/O,
+ * and a blocked virtual thread does not hold a platform thread or its stack.</p>
+ */
+final class TeardownThreads {
+
+    private TeardownThreads() {
+    }
+
+    /**
+     * @return executor which starts a virtual thread per task
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("teardown-", 0).factory());
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Terminates processes together.
+ *
+ * <p>Java 9 version: whole descendant trees of the registered processes are signalled, and all of them are waited
+ * by their {@link ProcessHandle#onExit()} futures against one shared deadline.
+ * Processes still alive at the deadline are killed forcibly.</p>
+ */
+class ProcessGroup implements TeardownGroup {
+
+    private final List<ProcessHandle> handles_ = new ArrayList<>();
+
+    /*
+     * Registered Process or ProcessHandle, at the same index as handles_. Reported to listeners.
+     */
+    private final List<Object> members_ = new ArrayList<>();
+
+    private final long gracePeriodNanos_;
+
+    ProcessGroup(final long gracePeriodNanos) {
+        gracePeriodNanos_ = gracePeriodNanos;
+    }
+
+    void add(final Process process) {
+        handles_.add(process.toHandle());
+        members_.add(process);
+    }
+
+    /**
+     * @param handle {@code java.lang.ProcessHandle}
+     */
+    void addHandle(final Object handle) {
+        if (!(handle instanceof ProcessHandle)) {
+            throw new IllegalArgumentException("Not a ProcessHandle: " + handle);
+        }
+        final ProcessHandle processHandle = (ProcessHandle) handle;
+        if (processHandle.equals(ProcessHandle.current())) {
+            throw new IllegalArgumentException("Can not terminate the current process: " + handle);
+        }
+        handles_.add(processHandle);
+        members_.add(processHandle);
+    }
+
+    @Override
+    public void close(final TeardownEvents events) throws Exception {
+        final long[] starts = new long[members_.size()];
+        for (int i = 0; i < members_.size(); i++) {
+            starts[i] = events.closing(members_.get(i));
+        }
+        // collect the trees first. once a parent exits, its children are reparented and no longer its descendants.
+        final Set<ProcessHandle> all = new LinkedHashSet<>();
+        for (final ProcessHandle handle : handles_) {
+            all.add(handle);
+            handle.descendants().forEach(all::add);
+        }
+        for (final ProcessHandle handle : all) {
+            handle.destroy();
+        }
+
+        try {
+            await(all, gracePeriodNanos_);
+        } catch (final InterruptedException e) {
+            // do not leave processes behind
+            all.forEach(ProcessHandle::destroyForcibly);
+            for (int i = 0; i < members_.size(); i++) {
+                events.failed(members_.get(i), starts[i], e);
+            }
+            throw e;
+        }
+
+        final List<ProcessHandle> stragglers = new ArrayList<>();
+        for (final ProcessHandle handle : all) {
+            if (handle.isAlive()) {
+                stragglers.add(handle);
+            }
+        }
+        stragglers.forEach(ProcessHandle::destroyForcibly);
+        // a forcibly killed process can not refuse to exit, so this does not block long.
+        await(stragglers, Long.MAX_VALUE);
+        for (int i = 0; i < members_.size(); i++) {
+            events.closed(members_.get(i), starts[i]);
+        }
+    }
+
+    private static void await(final Iterable<ProcessHandle> handles, final long timeoutNanos)
+            throws InterruptedException {
+        final List<CompletableFuture<ProcessHandle>> exits = new ArrayList<>();
+        handles.forEach(handle -> exits.add(handle.onExit()));
+        try {
+            CompletableFuture.allOf(exits.toArray(new CompletableFuture<?>[0])).get(timeoutNanos,
+                    TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            // stragglers are killed by the caller
+        } catch (final ExecutionException e) {
+            // onExit() does not complete exceptionally
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Compares serial teardown with concurrent teardown, for 1,000 teardown objects which block like a network call.
+ * Concurrent teardown runs on virtual threads on Java 21+ against the multi-release jar (benchmarkJava21 task),
+ * otherwise on platform threads (benchmark task). Results are appended to blocking-teardown.txt.
+ */
+@Benchmark
+class BlockingTeardownBenchmark {
+
+    private static final int TASKS = 1_000;
+
+    private static final long BLOCK_MILLIS = 5L;
+
+    @Test
+    void serial() throws Exception {
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < TASKS; i++) {
+            try {
+                new Blocking().close();
+            } catch (final Exception e) {
+                exceptionHandler.add(e);
+            }
+        }
+        report("serial", start);
+        exceptionHandler.throwIfNeeded();
+    }
+
+    @Test
+    void concurrent() throws Exception {
+        final ExecutorService executor = TeardownThreads.newExecutor();
+        try {
+            final ConcurrentGroup group = new ConcurrentGroup(executor, TASKS, null);
+            final List<Blocking> tasks = new ArrayList<>();
+            for (int i = 0; i < TASKS; i++) {
+                final Blocking task = new Blocking();
+                group.add(task);
+                tasks.add(task);
+            }
+
+            final long start = System.nanoTime();
+            group.close();
+            final boolean virtual = tasks.get(0).virtual_;
+            report(virtual ? "concurrent, virtual threads" : "concurrent, platform threads", start);
+            // otherwise the classes were not loaded from META-INF/versions/21, and this measured the Java 8 version.
+            if (Boolean.getBoolean("benchmark.expectVirtualThreads") && !virtual) {
+                throw new IllegalStateException("Concurrent teardown did not run on virtual threads");
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void report(final String name, final long start) throws IOException {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        final String line = "BlockingTeardownBenchmark." + name + " (Java "
+                + System.getProperty("java.specification.version") + "): " + millis + " ms";
+        System.out.println(line);
+        final Path outputDirectory = Paths.get(System.getProperty("benchmark.outputDirectory", "build/benchmark"));
+        Files.createDirectories(outputDirectory);
+        Files.write(outputDirectory.resolve("blocking-teardown.txt"), Collections.singletonList(line),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /*
+     * Thread#isVirtual() is Java 21 API, and tests are compiled for Java 8.
+     */
+    private static boolean isVirtual(final Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (final NoSuchMethodException e) {
+            return false;
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Blocking implements AutoCloseable {
+
+        private volatile boolean virtual_;
+
+        @Override
+        public void close() throws InterruptedException {
+            virtual_ = isVirtual(Thread.currentThread());
+            Thread.sleep(BLOCK_MILLIS);
+        }
+
+    }
+
+}
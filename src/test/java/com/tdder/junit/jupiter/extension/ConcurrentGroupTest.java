@@ -0,0 +1,241 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class ConcurrentGroupTest {
+
+    private static final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+    private ExecutorService executor_;
+
+    private Path directory_;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        messages.clear();
+        // the executor of the session
+        executor_ = TeardownThreads.newExecutor();
+        directory_ = Files.createTempDirectory("history");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        executor_.shutdownNow();
+        DeletePath.of(directory_).close();
+    }
+
+    @Test
+    void reverseOrderWithoutHistory() throws Exception {
+        // one at a time, to observe the start order
+        final ConcurrentGroup group = new ConcurrentGroup(executor_, 1, null);
+        group.add(new Message("1"));
+        group.add(new Message("2"));
+        group.add(new Message("3"));
+
+        group.close();
+
+        assertThat(messages, is(contains("3", "2", "1")));
+    }
+
+    @Test
+    void slowestFirst() throws Exception {
+        final TeardownHistory history = TeardownHistory.load(directory_.resolve("history.properties"));
+
+        // the first run learns durations. the second run uses them.
+        for (int run = 0; run < 2; run++) {
+            messages.clear();
+            final ConcurrentGroup group = new ConcurrentGroup(executor_, 1, history);
+            group.add(new Slow("slow"));
+            group.add(new Message("fast"));
+            group.close();
+        }
+
+        assertThat(messages, is(contains("slow", "fast")));
+    }
+
+    @Test
+    void parallelismIsBounded() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final ConcurrentGroup group = new ConcurrentGroup(executor_, 2, null);
+        for (int i = 0; i < 10; i++) {
+            group.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10L);
+                running.decrementAndGet();
+            });
+        }
+
+        group.close();
+
+        assertThat(maxRunning.get(), is(2));
+    }
+
+    @Test
+    void slowestFirst_throughExtension() throws Exception {
+        final Map<String, String> configuration = new HashMap<>();
+        configuration.put(TeardownExtension.HISTORY_FILE_PROPERTY_NAME,
+                directory_.resolve("history.properties").toString());
+        configuration.put(TeardownExtension.CONCURRENCY_PROPERTY_NAME, "1");
+
+        // the first run learns durations in reverse order of registration. the second run uses them.
+        final TestExecutionSummary first = runTest(SlowAndFast.class, configuration);
+        assertThat(messages, is(contains("fast", "slow")));
+        messages.clear();
+        final TestExecutionSummary second = runTest(SlowAndFast.class, configuration);
+
+        assertEquals(0, first.getTestsFailedCount() + second.getTestsFailedCount());
+        assertThat(messages, is(contains("slow", "fast")));
+    }
+
+    @Test
+    void history_lambdaKey() throws Exception {
+        final AutoCloseable lambda = () -> {
+        };
+        assertThat(TeardownHistory.key(lambda, null), is(ConcurrentGroupTest.class.getName() + "$$Lambda"));
+    }
+
+    @Test
+    void history_saveAndLoad() throws Exception {
+        final Path file = directory_.resolve("history.properties");
+        final TeardownHistory history = TeardownHistory.load(file);
+        for (int i = 0; i < TeardownHistory.MAX_ENTRIES + 10; i++) {
+            history.record("key" + i, i);
+        }
+        history.record("key" + (TeardownHistory.MAX_ENTRIES + 9), 100L);
+        history.save();
+
+        final TeardownHistory loaded = TeardownHistory.load(file);
+
+        // bounded. eldest entries are removed.
+        assertThat(loaded.estimate("key0"), is(0L));
+        assertThat(loaded.estimate("key10"), is(10L));
+        // moving average
+        assertThat(loaded.estimate("key" + (TeardownHistory.MAX_ENTRIES + 9)),
+                is((TeardownHistory.MAX_ENTRIES + 9 + 100L) / 2));
+    }
+
+    @Test
+    void addConcurrent() throws Exception {
+        final TestExecutionSummary summary = runTest(AddConcurrent.class, Collections.singletonMap(
+                TeardownExtension.HISTORY_FILE_PROPERTY_NAME, directory_.resolve("history.properties").toString()));
+
+        assertEquals(1, summary.getTestsFailedCount());
+        assertThat(messages, is(containsInAnyOrder("1", "2", "3", "4")));
+        // concurrent ones are executed at the position of the first one.
+        assertThat(messages.get(3), is("1"));
+        assertThat(summary.getFailures().get(0).getException().getMessage(), is("3-ex"));
+        assertThat(Files.exists(directory_.resolve("history.properties")), is(true));
+    }
+
+    @Test
+    void phases() throws Exception {
+        final TestExecutionSummary summary = runTest(Phases.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertThat(messages, is(containsInAnyOrder("client1", "client2", "server1", "server2", "data")));
+        // phases are executed one after another, in reverse order of their first registration.
+        assertThat(messages.subList(0, 2), is(containsInAnyOrder("client1", "client2")));
+        assertThat(messages.subList(2, 4), is(containsInAnyOrder("server1", "server2")));
+        assertThat(messages.get(4), is("data"));
+    }
+
+    static class Message implements AutoCloseable {
+
+        private final String message_;
+
+        Message(final String message) {
+            message_ = message;
+        }
+
+        @Override
+        public void close() {
+            messages.add(message_);
+        }
+
+    }
+
+    static class Slow extends Message {
+
+        Slow(final String message) {
+            super(message);
+        }
+
+        @Override
+        public void close() {
+            try {
+                Thread.sleep(50L);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.close();
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class AddConcurrent {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.add(new Message("1"));
+            teardown.addConcurrent(new Message("2"));
+            teardown.addConcurrent(() -> {
+                messages.add("3");
+                throw new RuntimeException("3-ex");
+            });
+            teardown.addConcurrent(new Message("4"));
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class SlowAndFast {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addConcurrent(new Slow("slow"));
+            teardown.addConcurrent(new Message("fast"));
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class Phases {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addConcurrent("data", new Message("data"));
+            teardown.addConcurrent("servers", new Slow("server1"));
+            teardown.addConcurrent("clients", new Slow("client1"));
+            teardown.addConcurrent("servers", new Message("server2"));
+            teardown.addConcurrent("clients", new Message("client2"));
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Compares serial walkFileTree deletion with PathDeleter on a tree of 100k files.
+ */
+@Benchmark
+class DeleteTreeBenchmark {
+
+    // 10 * 10 * 10 directories, 100 files each = 100,000 files
+    private static final int DEPTH = 3;
+
+    private static final int DIRECTORIES = 10;
+
+    private static final int FILES = 100;
+
+    @Test
+    void serial() throws Exception {
+        final Path root = Files.createTempDirectory("benchmark");
+        createTree(root, DEPTH, DIRECTORIES, FILES);
+
+        final long start = System.nanoTime();
+        PathDeleter.deleteSerially(root);
+        report("serial", start);
+    }
+
+    @Test
+    void parallel() throws Exception {
+        final Path root = Files.createTempDirectory("benchmark");
+        createTree(root, DEPTH, DIRECTORIES, FILES);
+
+        final long start = System.nanoTime();
+        PathDeleter.delete(root);
+        report("parallel", start);
+    }
+
+    private static void report(final String name, final long start) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("DeleteTreeBenchmark." + name + ": " + millis + " ms");
+    }
+
+    /*
+     * Files are created in leaf directories.
+     */
+    static void createTree(final Path dir, final int depth, final int directories, final int files)
+            throws IOException {
+        if (depth == 0) {
+            for (int i = 0; i < files; i++) {
+                Files.createFile(dir.resolve("file" + i));
+            }
+            return;
+        }
+        for (int i = 0; i < directories; i++) {
+            final Path child = Files.createDirectory(dir.resolve("dir" + i));
+            createTree(child, depth - 1, directories, files);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class DirectorySnapshotTest {
+
+    private static Path root;
+
+    private static Path directory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        root = Files.createTempDirectory("snapshot");
+        directory = Files.createDirectories(root.resolve("data"));
+        write(directory.resolve("a.txt"), "a");
+        write(Files.createDirectories(directory.resolve("sub/deep")).resolve("b.txt"), "b");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletePath.of(root).close();
+    }
+
+    @Test
+    void restore() throws Exception {
+        final DirectorySnapshot snapshot = DirectorySnapshot.take(directory);
+
+        write(directory.resolve("a.txt"), "modified");
+        write(directory.resolve("added.txt"), "added");
+        Files.createDirectories(directory.resolve("added/dir"));
+        DeletePath.of(directory.resolve("sub/deep")).close();
+        snapshot.restore();
+
+        assertThat(read(directory.resolve("a.txt")), is("a"));
+        assertThat(read(directory.resolve("sub/deep/b.txt")), is("b"));
+        assertThat(Files.exists(directory.resolve("added.txt")), is(false));
+        assertThat(Files.exists(directory.resolve("added")), is(false));
+
+        // unchanged file is not copied
+        write(directory.resolve("a.txt"), "modified again");
+        final Object restoredKey = fileKey(directory.resolve("sub/deep/b.txt"));
+        snapshot.close();
+        assertThat(read(directory.resolve("a.txt")), is("a"));
+        // file keys are not supported on some file systems
+        if (restoredKey != null) {
+            assertThat(fileKey(directory.resolve("sub/deep/b.txt")), is(restoredKey));
+        }
+    }
+
+    @Test
+    void restoredAfterEachTest() throws Exception {
+        final TestExecutionSummary summary = runTest(SnapshotCase.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(2, summary.getTestsSucceededCount());
+        assertThat(read(directory.resolve("a.txt")), is("a"));
+        // only the directory is left. the snapshot is deleted after all
+        try (Stream<Path> children = Files.list(root)) {
+            assertThat(children.count(), is(1L));
+        }
+    }
+
+    private static Object fileKey(final Path file) throws Exception {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+
+    private static void write(final Path file, final String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class SnapshotCase {
+
+        private static DirectorySnapshot baseline;
+
+        @BeforeAll
+        static void beforeAll(final TeardownRegistry teardown) throws Exception {
+            baseline = teardown.snapshotDirectory(directory);
+        }
+
+        @BeforeEach
+        void setUp(final TeardownRegistry teardown) {
+            teardown.add(baseline);
+        }
+
+        @Test
+        void test1() throws Exception {
+            assertThat(read(directory.resolve("a.txt")), is("a"));
+            write(directory.resolve("a.txt"), "test1");
+        }
+
+        @Test
+        void test2() throws Exception {
+            assertThat(read(directory.resolve("a.txt")), is("a"));
+            write(directory.resolve("a.txt"), "test2");
+        }
+
+    }
+
+}
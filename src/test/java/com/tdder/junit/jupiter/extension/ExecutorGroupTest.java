@@ -0,0 +1,94 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTestMethod;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class ExecutorGroupTest {
+
+    private static final List<ExecutorService> executors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        executors.clear();
+    }
+
+    @Test
+    void executorsAreShutDown() throws Exception {
+        final TestExecutionSummary summary = runTestMethod(AddExecutor.class, "terminates");
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertEquals(3, executors.size());
+        for (final ExecutorService executor : executors) {
+            assertThat(executor.isTerminated(), is(true));
+        }
+    }
+
+    @Test
+    void leakedExecutorIsReported() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                latch.await();
+            } catch (final InterruptedException e) {
+                // interrupted by shutdownNow
+            }
+        });
+        final ExecutorGroup group = new ExecutorGroup(0L);
+        group.add(executor);
+
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+        try {
+            group.close();
+        } catch (final Exception e) {
+            exceptionHandler.add(e);
+        }
+
+        final Exception e = assertThrowsFrom(exceptionHandler);
+        assertThat(e, is(instanceOf(IllegalStateException.class)));
+        assertThat(e.getMessage(), startsWith("Executor did not terminate"));
+        assertThat(executor.isShutdown(), is(true));
+    }
+
+    private static Exception assertThrowsFrom(final ExceptionHandler exceptionHandler) {
+        try {
+            exceptionHandler.throwIfNeeded();
+        } catch (final Exception e) {
+            return e;
+        }
+        throw new AssertionError("no exception");
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class AddExecutor {
+
+        @Test
+        void terminates(final TeardownRegistry teardown) throws Exception {
+            for (int i = 0; i < 3; i++) {
+                final ExecutorService executor = teardown.addExecutor(Executors.newFixedThreadPool(2));
+                executor.execute(() -> {
+                });
+                executors.add(executor);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTests;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+/*
+ * Measures the cost of TeardownExtension per test in a whole engine run.
+ *
+ * Generates a synthetic suite of 10,000 tests in two variants: one registers a teardown object per test through
+ * the extension, the other does the same work inline without the extension. Each variant is run through the
+ * launcher, and wall time, allocated bytes and GC counts are written as JSON to the benchmark output directory.
+ */
+@Benchmark
+class ExtensionOverheadBenchmark {
+
+    private static final int CLASSES = 100;
+
+    // per class: 50 field injection + 20 parameter injection + 10 parameterized + 2 nested levels * 10 = 100 tests
+    private static final int FIELD_TESTS = 50;
+
+    private static final int PARAMETER_TESTS = 20;
+
+    private static final int PARAMETERIZED_VALUES = 10;
+
+    private static final int NESTED_TESTS = 10;
+
+    private static final int HIERARCHY_DEPTH = 5;
+
+    private static final int WARMUP_ITERATIONS = 1;
+
+    private static final int ITERATIONS = 3;
+
+    private Path directory_;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory_ = Files.createTempDirectory("overhead");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletePath.of(directory_).close();
+    }
+
+    @Test
+    void overhead() throws Exception {
+        final Variant baseline = new Variant("withoutExtension", false);
+        final Variant extension = new Variant("withExtension", true);
+        final List<Variant> variants = Arrays.asList(baseline, extension);
+        for (final Variant variant : variants) {
+            variant.generate();
+        }
+
+        for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+            // alternate, so that both variants see the same JIT and heap state
+            for (final Variant variant : variants) {
+                final Measurement measurement = variant.run();
+                if (WARMUP_ITERATIONS <= i) {
+                    variant.measurements_.add(measurement);
+                }
+            }
+        }
+
+        final String json = toJson(variants);
+        System.out.println("ExtensionOverheadBenchmark: " + json);
+        final Path outputDirectory = Paths.get(System.getProperty("benchmark.outputDirectory", "build/benchmark"));
+        Files.createDirectories(outputDirectory);
+        Files.write(outputDirectory.resolve("extension-overhead.json"), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toJson(final List<Variant> variants) {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"tests\":").append(testCount())
+                .append(",\"java\":\"").append(System.getProperty("java.version")).append('"')
+                .append(",\"variants\":[");
+        for (int i = 0; i < variants.size(); i++) {
+            final Variant variant = variants.get(i);
+            if (0 < i) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(variant.name_).append("\",\"runs\":[");
+            for (int j = 0; j < variant.measurements_.size(); j++) {
+                final Measurement m = variant.measurements_.get(j);
+                if (0 < j) {
+                    json.append(',');
+                }
+                json.append("{\"wallNanos\":").append(m.wallNanos_)
+                        .append(",\"allocatedBytes\":").append(m.allocatedBytes_)
+                        .append(",\"gcCount\":").append(m.gcCount_)
+                        .append(",\"gcMillis\":").append(m.gcMillis_)
+                        .append('}');
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static int testCount() {
+        return CLASSES * (FIELD_TESTS + PARAMETER_TESTS + PARAMETERIZED_VALUES + 2 * NESTED_TESTS);
+    }
+
+    private class Variant {
+
+        private final String name_;
+
+        private final boolean extension_;
+
+        private final List<Measurement> measurements_ = new ArrayList<>();
+
+        private Path classes_;
+
+        Variant(final String name, final boolean extension) {
+            name_ = name;
+            extension_ = extension;
+        }
+
+        void generate() throws Exception {
+            final Path sources = directory_.resolve(name_).resolve("src");
+            Files.createDirectories(sources.resolve("e2e"));
+            for (int depth = 0; depth < HIERARCHY_DEPTH; depth++) {
+                write(sources, "Base" + depth, baseClass(depth));
+            }
+            for (int i = 0; i < CLASSES; i++) {
+                write(sources, "Suite" + i + "Test", testClass(i));
+            }
+            classes_ = directory_.resolve(name_).resolve("classes");
+            TestCompiler.compile(sources, classes_,
+                    Arrays.asList(TeardownExtension.class, Test.class, ParameterizedTest.class));
+        }
+
+        private void write(final Path sources, final String className, final String source) throws Exception {
+            Files.write(sources.resolve("e2e").resolve(className + ".java"),
+                    source.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private String baseClass(final int depth) {
+            final StringBuilder source = new StringBuilder();
+            source.append("package e2e;\n");
+            source.append("public abstract class Base").append(depth);
+            if (0 < depth) {
+                source.append(" extends Base").append(depth - 1);
+            }
+            source.append(" {\n");
+            if (extension_) {
+                source.append("    protected com.tdder.junit.jupiter.extension.TeardownRegistry base")
+                        .append(depth).append("Teardown_;\n");
+            }
+            if (depth == 0) {
+                source.append("    protected int released_;\n");
+                source.append("    protected void release() { released_++; }\n");
+            }
+            return source.append("}\n").toString();
+        }
+
+        private String testClass(final int index) {
+            final StringBuilder source = new StringBuilder();
+            source.append("package e2e;\n");
+            source.append("import com.tdder.junit.jupiter.extension.TeardownExtension;\n");
+            source.append("import com.tdder.junit.jupiter.extension.TeardownRegistry;\n");
+            source.append("import org.junit.jupiter.api.Nested;\n");
+            source.append("import org.junit.jupiter.api.Test;\n");
+            source.append("import org.junit.jupiter.api.extension.ExtendWith;\n");
+            source.append("import org.junit.jupiter.params.ParameterizedTest;\n");
+            source.append("import org.junit.jupiter.params.provider.ValueSource;\n");
+            if (extension_) {
+                source.append("@ExtendWith(TeardownExtension.class)\n");
+            }
+            source.append("public class Suite").append(index).append("Test extends Base")
+                    .append(HIERARCHY_DEPTH - 1).append(" {\n");
+            if (extension_) {
+                source.append("    TeardownRegistry teardown_;\n");
+            }
+            for (int i = 0; i < FIELD_TESTS; i++) {
+                source.append("    @Test void field").append(i).append("() { ")
+                        .append(release("teardown_")).append(" }\n");
+            }
+            for (int i = 0; i < PARAMETER_TESTS; i++) {
+                source.append("    @Test void parameter").append(i).append("(").append(parameter()).append(") { ")
+                        .append(release("teardown")).append(" }\n");
+            }
+            source.append("    @ParameterizedTest @ValueSource(ints = { ");
+            for (int i = 0; i < PARAMETERIZED_VALUES; i++) {
+                source.append(0 < i ? ", " : "").append(i);
+            }
+            source.append(" })\n");
+            source.append("    void parameterized(final int value").append(extension_ ? ", " : "")
+                    .append(parameter()).append(") { ").append(release("teardown")).append(" }\n");
+
+            source.append("    @Nested class Level1 {\n");
+            if (extension_) {
+                source.append("        TeardownRegistry nestedTeardown_;\n");
+            }
+            for (int i = 0; i < NESTED_TESTS; i++) {
+                source.append("        @Test void nested").append(i).append("() { ")
+                        .append(release("nestedTeardown_")).append(" }\n");
+            }
+            source.append("        @Nested class Level2 {\n");
+            for (int i = 0; i < NESTED_TESTS; i++) {
+                source.append("            @Test void nested").append(i).append("(").append(parameter())
+                        .append(") { ").append(release("teardown")).append(" }\n");
+            }
+            source.append("        }\n");
+            source.append("    }\n");
+            return source.append("}\n").toString();
+        }
+
+        private String parameter() {
+            return extension_ ? "final TeardownRegistry teardown" : "";
+        }
+
+        private String release(final String registry) {
+            return extension_ ? registry + ".add(() -> release());" : "release();";
+        }
+
+        Measurement run() throws Exception {
+            try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes_.toUri().toURL() },
+                    getClass().getClassLoader())) {
+                final List<Class<?>> testClasses = new ArrayList<>();
+                for (int i = 0; i < CLASSES; i++) {
+                    testClasses.add(classLoader.loadClass("e2e.Suite" + i + "Test"));
+                }
+
+                final Measurement measurement = Measurement.start();
+                final TestExecutionSummary summary = runTests(testClasses);
+                measurement.stop();
+
+                assertEquals(0, summary.getTestsFailedCount());
+                assertEquals(testCount(), summary.getTestsSucceededCount());
+                return measurement;
+            }
+        }
+
+    }
+
+    private static class Measurement {
+
+        private long wallNanos_;
+
+        private long allocatedBytes_;
+
+        private long gcCount_;
+
+        private long gcMillis_;
+
+        static Measurement start() {
+            final Measurement measurement = new Measurement();
+            measurement.allocatedBytes_ = -allocatedBytes();
+            measurement.gcCount_ = -gcCount();
+            measurement.gcMillis_ = -gcMillis();
+            measurement.wallNanos_ = -System.nanoTime();
+            return measurement;
+        }
+
+        void stop() {
+            wallNanos_ += System.nanoTime();
+            allocatedBytes_ += allocatedBytes();
+            gcCount_ += gcCount();
+            gcMillis_ += gcMillis();
+        }
+
+        /*
+         * The launcher executes tests in the calling thread. -1 if the JVM does not measure allocation.
+         */
+        private static long allocatedBytes() {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                return ((com.sun.management.ThreadMXBean) threadMXBean)
+                        .getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            return -1L;
+        }
+
+        private static long gcCount() {
+            long count = 0L;
+            for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0L, gc.getCollectionCount());
+            }
+            return count;
+        }
+
+        private static long gcMillis() {
+            long millis = 0L;
+            for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                millis += Math.max(0L, gc.getCollectionTime());
+            }
+            return millis;
+        }
+
+    }
+
+}
@@ -1,12 +1,15 @@
 package com.tdder.junit.jupiter.extension;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.platform.commons.util.ReflectionUtils;
 import org.junit.platform.engine.discovery.DiscoverySelectors;
 import org.junit.platform.launcher.Launcher;
 import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.TestExecutionListener;
 import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
 import org.junit.platform.launcher.core.LauncherFactory;
 import org.junit.platform.launcher.listeners.LoggingListener;
@@ -16,10 +19,31 @@ import org.junit.platform.launcher.listeners.TestExecutionSummary;
 public class JUnitRunner {
 
     static TestExecutionSummary runTest(final Class<?> testClass) {
+        return runTest(testClass, Collections.emptyMap());
+    }
+
+    static TestExecutionSummary runTest(final Class<?> testClass, final Map<String, String> configurationParameters,
+            final TestExecutionListener... listeners) {
         final LauncherDiscoveryRequestBuilder requestBuilder = LauncherDiscoveryRequestBuilder.request();
         requestBuilder.selectors(DiscoverySelectors.selectClass(testClass));
+        requestBuilder.configurationParameters(configurationParameters);
         final LauncherDiscoveryRequest discoveryRequest = requestBuilder.build();
-        return runTest(discoveryRequest);
+        return runTest(discoveryRequest, listeners);
+    }
+
+    static TestExecutionSummary runTests(final List<Class<?>> testClasses,
+            final TestExecutionListener... listeners) {
+        return runTests(testClasses, Collections.emptyMap(), listeners);
+    }
+
+    static TestExecutionSummary runTests(final List<Class<?>> testClasses,
+            final Map<String, String> configurationParameters, final TestExecutionListener... listeners) {
+        final LauncherDiscoveryRequestBuilder requestBuilder = LauncherDiscoveryRequestBuilder.request();
+        for (final Class<?> testClass : testClasses) {
+            requestBuilder.selectors(DiscoverySelectors.selectClass(testClass));
+        }
+        requestBuilder.configurationParameters(configurationParameters);
+        return runTest(requestBuilder.build(), listeners);
     }
 
     static TestExecutionSummary runTestMethod(final Class<?> testClass, final String methodName) {
@@ -30,10 +54,15 @@ public class JUnitRunner {
         return runTest(discoveryRequest);
     }
 
-    private static TestExecutionSummary runTest(final LauncherDiscoveryRequest discoveryRequest) {
+    private static TestExecutionSummary runTest(final LauncherDiscoveryRequest discoveryRequest,
+            final TestExecutionListener... additionalListeners) {
         final Launcher launcher = LauncherFactory.create();
         final SummaryGeneratingListener listener = new SummaryGeneratingListener();
-        launcher.execute(discoveryRequest, LoggingListener.forJavaUtilLogging(), listener);
+        final TestExecutionListener[] listeners = new TestExecutionListener[additionalListeners.length + 2];
+        listeners[0] = LoggingListener.forJavaUtilLogging();
+        listeners[1] = listener;
+        System.arraycopy(additionalListeners, 0, listeners, 2, additionalListeners.length);
+        launcher.execute(discoveryRequest, listeners);
 
         final TestExecutionSummary summary = listener.getSummary();
         summary.getFailures().forEach(f -> f.getException().printStackTrace());
@@ -0,0 +1,192 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class LeakDetectorTest {
+
+    @Test
+    void reachableAfterGcCycles() throws Exception {
+        final LeakDetector detector = new LeakDetector(2);
+        try {
+            final Leaked leaked = new Leaked();
+            detector.closed("scope-1", leaked, 0L);
+            detector.closed("scope-2", new Collected(), 0L);
+
+            // not enough GC cycles yet
+            detector.check();
+            assertThat(detector.leaks(), is(empty()));
+
+            System.gc();
+            System.gc();
+            detector.check();
+
+            assertThat(detector.leaks(), is(contains(Leaked.class.getName() + " registered by scope-1")));
+            // reported once
+            assertThat(detector.leaks(), is(empty()));
+            // keep it reachable until here
+            assertThat(leaked, is(notNullValue()));
+        } finally {
+            assertThat(detector.close(), is(empty()));
+        }
+    }
+
+    @Test
+    void checkedInBackground() throws Exception {
+        final LeakDetector detector = new LeakDetector(1);
+        try {
+            final Leaked leaked = new Leaked();
+            detector.closed("scope-1", leaked, 0L);
+            System.gc();
+
+            List<String> leaks = detector.leaks();
+            for (int i = 0; leaks.isEmpty() && i < 100; i++) {
+                Thread.sleep(100L);
+                leaks = detector.leaks();
+            }
+
+            assertThat(leaks, is(contains(Leaked.class.getName() + " registered by scope-1")));
+            assertThat(leaked, is(notNullValue()));
+        } finally {
+            detector.close();
+        }
+    }
+
+    @Test
+    void pendingAtClose() throws Exception {
+        final LeakDetector detector = new LeakDetector(1_000);
+        final Leaked leaked = new Leaked();
+        detector.closed("scope-1", leaked, 0L);
+
+        assertThat(detector.close(), is(contains(allOf(
+                startsWith(Leaked.class.getName() + " registered by scope-1"), containsString("pending")))));
+        assertThat(leaked, is(notNullValue()));
+    }
+
+    @Test
+    void youngCollectionsAreNotCounted() throws Exception {
+        assertThat(LeakDetector.isOldCollector("G1 Young Generation"), is(false));
+        assertThat(LeakDetector.isOldCollector("PS Scavenge"), is(false));
+        assertThat(LeakDetector.isOldCollector("Copy"), is(false));
+        assertThat(LeakDetector.isOldCollector("G1 Old Generation"), is(true));
+        assertThat(LeakDetector.isOldCollector("PS MarkSweep"), is(true));
+        assertThat(LeakDetector.isOldCollector("MarkSweepCompact"), is(true));
+    }
+
+    @Test
+    void lambdasAreNotTracked() throws Exception {
+        final AutoCloseable nonCapturing = () -> {
+        };
+        final Leaked leaked = new Leaked();
+        final AutoCloseable capturing = () -> leaked.toString();
+
+        assertThat(LeakDetector.isTracked(nonCapturing), is(false));
+        assertThat(LeakDetector.isTracked(capturing), is(false));
+        assertThat(LeakDetector.isTracked(leaked), is(true));
+    }
+
+    @Test
+    void throughExtension() throws Exception {
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        try {
+            final TestExecutionSummary summary = runTest(LeakCase.class,
+                    Collections.singletonMap(TeardownExtension.LEAK_DETECTION_GC_CYCLES_PROPERTY_NAME, "1"),
+                    recorder);
+
+            assertEquals(0, summary.getTestsFailedCount());
+            assertEquals(2, summary.getTestsSucceededCount());
+        } finally {
+            LeakCase.cache.clear();
+        }
+        // neither the collected one, the lambda, nor the group of the concurrent one.
+        assertThat(recorder.values(LeakDetector.REPORT_KEY), is(containsInAnyOrder(
+                allOf(startsWith(Leaked.class.getName() + " registered by "), containsString("test1")),
+                allOf(startsWith(LeakedMember.class.getName() + " registered by "), containsString("test1")))));
+    }
+
+    @Test
+    void pendingAtEndOfExecution() throws Exception {
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        try {
+            final TestExecutionSummary summary = runTest(LeakCase.class,
+                    Collections.singletonMap(TeardownExtension.LEAK_DETECTION_GC_CYCLES_PROPERTY_NAME, "1000"),
+                    recorder);
+
+            assertEquals(0, summary.getTestsFailedCount());
+        } finally {
+            LeakCase.cache.clear();
+        }
+        assertThat(recorder.values(LeakDetector.REPORT_KEY), is(containsInAnyOrder(
+                allOf(startsWith(Leaked.class.getName() + " registered by "), containsString("pending")),
+                allOf(startsWith(LeakedMember.class.getName() + " registered by "), containsString("pending")))));
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    @TestMethodOrder(MethodOrderer.MethodName.class) // make the test method execution order deterministic.
+    static class LeakCase {
+
+        static final List<Object> cache = new ArrayList<>();
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            cache.add(teardown.add(new Leaked()));
+            teardown.add(new Collected());
+            teardown.add(() -> {
+            });
+            cache.add(teardown.addConcurrent(new LeakedMember()));
+        }
+
+        @Test
+        void test2() throws Exception {
+            // leaks of test1 are found in background, and reported by a later scope or at the end.
+            System.gc();
+            System.gc();
+        }
+
+    }
+
+    private static class Leaked implements AutoCloseable {
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private static class LeakedMember implements AutoCloseable {
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    private static class Collected implements AutoCloseable {
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
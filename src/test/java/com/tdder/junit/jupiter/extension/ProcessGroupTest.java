@@ -0,0 +1,163 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class ProcessGroupTest {
+
+    private static final List<Process> processes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        processes.clear();
+    }
+
+    @Test
+    void processesAreTerminated() throws Exception {
+        final TestExecutionSummary summary = runTest(AddProcess.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(processes, hasSize(3));
+        for (final Process process : processes) {
+            assertThat(process.isAlive(), is(false));
+        }
+    }
+
+    @Test
+    void forciblyKilledAfterGracePeriod() throws Exception {
+        final Process process = startSleeper();
+        final ProcessGroup group = new ProcessGroup(0L);
+        group.add(process);
+
+        group.close();
+
+        assertThat(process.isAlive(), is(false));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_9)
+    void descendantsAreTerminated() throws Exception {
+        final Process parent = start(Parent.class);
+        final long grandchild;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(parent.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            grandchild = Long.parseLong(reader.readLine());
+        }
+        final ProcessGroup group = new ProcessGroup(TimeUnit.SECONDS.toNanos(10L));
+        group.add(parent);
+
+        group.close();
+
+        assertThat(parent.isAlive(), is(false));
+        assertThat(isAlive(grandchild), is(false));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_9)
+    void processHandle() throws Exception {
+        final Process process = startSleeper();
+        final ProcessGroup group = new ProcessGroup(TimeUnit.SECONDS.toNanos(10L));
+        group.addHandle(Process.class.getMethod("toHandle").invoke(process));
+
+        group.close();
+
+        assertThat(process.isAlive(), is(false));
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_8)
+    void processHandleRequiresJava9() throws Exception {
+        final ProcessGroup group = new ProcessGroup(0L);
+
+        assertThrows(UnsupportedOperationException.class, () -> group.addHandle(new Object()));
+    }
+
+    static Process startSleeper() throws Exception {
+        return start(Sleeper.class);
+    }
+
+    private static Process start(final Class<?> mainClass) throws Exception {
+        final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), mainClass.getName())
+                .start();
+    }
+
+    /*
+     * Java 9+ API by reflection, because tests are compiled for Java 8.
+     */
+    private static boolean isAlive(final long pid) throws Exception {
+        final Class<?> handleClass = Class.forName("java.lang.ProcessHandle");
+        final Optional<?> handle = (Optional<?>) handleClass.getMethod("of", long.class).invoke(null, pid);
+        if (!handle.isPresent()) {
+            return false;
+        }
+        // a killed process may be reaped a little later by its new parent.
+        final CompletableFuture<?> exit = (CompletableFuture<?>) handleClass.getMethod("onExit")
+                .invoke(handle.get());
+        try {
+            exit.get(10L, TimeUnit.SECONDS);
+            return false;
+        } catch (final TimeoutException e) {
+            return true;
+        }
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class AddProcess {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            for (int i = 0; i < 3; i++) {
+                processes.add(teardown.addProcess(startSleeper()));
+            }
+        }
+
+    }
+
+    /**
+     * Starts a grandchild, and prints its pid.
+     */
+    public static class Parent {
+
+        public static void main(final String[] args) throws Exception {
+            final Process child = startSleeper();
+            System.out.println(Process.class.getMethod("pid").invoke(child));
+            System.out.flush();
+            Thread.sleep(60_000L);
+        }
+
+    }
+
+    public static class Sleeper {
+
+        public static void main(final String[] args) throws Exception {
+            Thread.sleep(60_000L);
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.platform.engine.reporting.ReportEntry;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+
+/**
+ * Records report entries published by tests.
+ */
+class ReportEntryRecorder implements TestExecutionListener {
+
+    private final List<Map<String, String>> entries_ = new ArrayList<>();
+
+    @Override
+    public void reportingEntryPublished(final TestIdentifier testIdentifier, final ReportEntry entry) {
+        entries_.add(entry.getKeyValuePairs());
+    }
+
+    List<String> values(final String key) {
+        return entries_.stream()
+                .filter(entry -> entry.containsKey(key))
+                .map(entry -> entry.get(key))
+                .collect(Collectors.toList());
+    }
+
+}
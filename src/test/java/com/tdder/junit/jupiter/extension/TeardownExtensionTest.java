@@ -2,10 +2,13 @@ package com.tdder.junit.jupiter.extension;
 
 import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
 import static com.tdder.junit.jupiter.extension.JUnitRunner.runTestMethod;
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTests;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -13,15 +16,30 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Savepoint;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.Map;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.api.TestMethodOrder;
@@ -327,6 +345,194 @@ class TeardownExtensionTest {
         }
     }
 
+    @Test
+    void deduplicate_disabled() throws Exception {
+        final TestExecutionSummary summary = runTest(Deduplicate.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains("2", "shared", "shared", "1", "shared")));
+    }
+
+    @Test
+    void deduplicate_enabled() throws Exception {
+        final TestExecutionSummary summary = runTest(Deduplicate.class,
+                Collections.singletonMap(TeardownExtension.DEDUPLICATE_PROPERTY_NAME, "true"));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // executed once, at the position of the first registration.
+        assertThat(messages, is(contains("2", "1", "shared")));
+    }
+
+    @Test
+    void directBuffers() throws Exception {
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        final TestExecutionSummary summary = runTest(DirectBuffers.class, Collections.emptyMap(), recorder);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        if (BufferCleaner.isAvailable()) {
+            // slice is not counted
+            assertThat(recorder.values("teardown.nativeBytesReleased"), is(contains("3072")));
+        }
+    }
+
+    @Test
+    void rollback() throws Exception {
+        final TestExecutionSummary summary = runTest(RollbackCase.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // rollbacks are executed before other teardown objects.
+        assertThat(messages, is(contains(
+                "autoCommit:getAutoCommit", "autoCommit:setAutoCommit(false)",
+                "transaction:getAutoCommit", "transaction:setSavepoint",
+                "transaction:rollback(savepoint)", "transaction:releaseSavepoint(savepoint)",
+                "autoCommit:rollback", "autoCommit:setAutoCommit(true)",
+                "2", "1")));
+    }
+
+    @Test
+    void listener() throws Exception {
+        final TestExecutionSummary summary = runTest(ListenerCase.class,
+                Collections.singletonMap(TeardownExtension.LISTENERS_PROPERTY_NAME, RecordingListener.class.getName()));
+
+        assertEquals(1, summary.getTestsFailedCount());
+        assertEquals(0, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains(
+                "registered:1", "registered:2",
+                "closing:2", "2", "failed:2-ex",
+                "closing:1", "1", "closed:1")));
+    }
+
+    @Test
+    void listener_groupMembers() throws Exception {
+        final TestExecutionSummary summary = runTest(ListenerGroupCase.class,
+                Collections.singletonMap(TeardownExtension.LISTENERS_PROPERTY_NAME,
+                        ThrowingListener.class.getName() + "," + RecordingListener.class.getName()));
+
+        // a failing listener fails neither the teardown objects nor other listeners.
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(messages, is(containsInAnyOrder(
+                "registered:1", "registered:2", "registered:ThreadPoolExecutor", "registered:DirectByteBuffer",
+                "registered:DeletePath", "registered:3",
+                "closing:1", "closing:2", "closing:ThreadPoolExecutor", "closing:DirectByteBuffer",
+                "closing:DeletePath", "closing:3",
+                "1", "2", "3",
+                "closed:1", "closed:2", "closed:ThreadPoolExecutor", "closed:DirectByteBuffer",
+                "closed:DeletePath", "closed:3")));
+        // reported at the end of the engine execution
+        assertEquals(1, summary.getFailures().size());
+        assertThat(summary.getFailures().get(0).getException().getMessage(),
+                is("TeardownListener " + ThrowingListener.class.getName() + " threw 6 exception(s)"));
+    }
+
+    @Test
+    void inProcess() throws Exception {
+        final TestExecutionSummary summary = runTest(InProcessCase.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains("test-inProcess", "static-external", "static-inProcess")));
+    }
+
+    @Test
+    void inProcess_fastExit() throws Exception {
+        final TestExecutionSummary summary = runTest(InProcessCase.class,
+                Collections.singletonMap(TeardownExtension.FAST_EXIT_PROPERTY_NAME, "true"));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // containers are not the end of the JVM, so all of them are executed.
+        assertThat(messages, is(contains("test-inProcess", "static-external", "static-inProcess")));
+    }
+
+    @Test
+    void sessionScope() throws Exception {
+        final TestExecutionSummary summary = runTests(Arrays.asList(SessionScopeCase.class, LaterCase.class),
+                Collections.emptyMap());
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(2, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains("static-inProcess", "later", "session-external", "session-inProcess")));
+    }
+
+    /*
+     * Only the last teardown before the JVM exits skips in-process teardown objects.
+     */
+    @Test
+    void sessionScope_fastExit() throws Exception {
+        final TestExecutionSummary summary = runTests(Arrays.asList(SessionScopeCase.class, LaterCase.class),
+                Collections.singletonMap(TeardownExtension.FAST_EXIT_PROPERTY_NAME, "true"));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(2, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains("static-inProcess", "later", "session-external")));
+    }
+
+    @Test
+    void budget_report() throws Exception {
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        final TestExecutionSummary summary = runTest(BudgetCase.class,
+                Collections.singletonMap(TeardownExtension.BUDGET_REGISTRATIONS_PROPERTY_NAME, "2"), recorder);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(2, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains("3", "2", "1", "2", "1")));
+        assertThat(recorder.values("teardown.budget.exceeded"),
+                is(contains("Registrations exceeded the budget 2: 3")));
+    }
+
+    @Test
+    void budget_fail() throws Exception {
+        final Map<String, String> config = new HashMap<>();
+        config.put(TeardownExtension.BUDGET_REGISTRATIONS_PROPERTY_NAME, "2");
+        config.put(TeardownExtension.BUDGET_ACTION_PROPERTY_NAME, "fail");
+        final TestExecutionSummary summary = runTest(BudgetCase.class, config);
+
+        assertEquals(1, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // all teardown objects are executed, before the test fails.
+        assertThat(messages, is(contains("3", "2", "1", "2", "1")));
+        assertThat(summary.getFailures().get(0).getException().getMessage(),
+                is("Registrations exceeded the budget 2: 3"));
+    }
+
+    @Test
+    void fileDescriptors() throws Exception {
+        assumeTrue(FileDescriptorCounter.isAvailable(), "Linux only");
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        final TestExecutionSummary summary = runTest(FileDescriptorCase.class,
+                Collections.singletonMap(TeardownExtension.FILE_DESCRIPTORS_ENABLED_PROPERTY_NAME, "true"), recorder);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(2, summary.getTestsSucceededCount());
+        // test1 leaves a file open, test2 closes it.
+        assertThat(recorder.values(FileDescriptorCounter.REPORT_KEY), hasItems("+1", "-1"));
+    }
+
+    @Test
+    void nestedContainer() throws Exception {
+        final TestExecutionSummary summary = runTest(NestedCase.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(3, summary.getTestsSucceededCount());
+        // the group fixture lives until the nested class ends, and the outer class fixture until the outer class ends.
+        assertThat(messages, is(contains("test0", "test1", "test2", "group-field", "group-parameter", "outer")));
+    }
+
+    @Test
+    void lazy() throws Exception {
+        final TestExecutionSummary summary = runTest(LazyCase.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // unused fixture is neither created nor executed.
+        assertThat(messages, is(contains("create-used", "test", "close-used")));
+    }
+
     @Test
     void mixCase_class() throws Exception {
         // Exercise
@@ -656,6 +862,338 @@ class TeardownExtensionTest {
 
     }
 
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class Deduplicate {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            final AutoCloseable shared = () -> messages.add("shared");
+            teardown.add(shared);
+            teardown.add(() -> messages.add("1"));
+            teardown.add(shared);
+            teardown.add(shared);
+            teardown.add(() -> messages.add("2"));
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class DirectBuffers {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            final ByteBuffer buffer = teardown.allocateDirect(1024);
+            teardown.addBuffer(buffer.slice());
+            teardown.addBuffer(ByteBuffer.allocateDirect(2048));
+            assertThat(buffer.isDirect(), is(true));
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class RollbackCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.add(() -> messages.add("1"));
+            teardown.addRollback(connection("autoCommit", true));
+            teardown.addRollback(connection("transaction", false));
+            teardown.add(() -> messages.add("2"));
+        }
+
+        /*
+         * In-memory stand-in which records calls.
+         */
+        private static Connection connection(final String name, final boolean autoCommit) {
+            final Savepoint savepoint = (Savepoint) Proxy.newProxyInstance(Savepoint.class.getClassLoader(),
+                    new Class<?>[] { Savepoint.class }, (proxy, method, args) -> null);
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                        final String arg;
+                        if (args == null) {
+                            arg = "";
+                        } else if (args[0] == savepoint) {
+                            arg = "(savepoint)";
+                        } else {
+                            arg = "(" + args[0] + ")";
+                        }
+                        messages.add(name + ":" + method.getName() + arg);
+                        switch (method.getName()) {
+                        case "getAutoCommit":
+                            return autoCommit;
+                        case "setSavepoint":
+                            return savepoint;
+                        default:
+                            return null;
+                        }
+                    });
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class ListenerCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.add(new Named("1", () -> messages.add("1")));
+            teardown.add(new Named("2", () -> {
+                messages.add("2");
+                throw new RuntimeException("2-ex");
+            }));
+        }
+
+    }
+
+    static class Named implements AutoCloseable {
+
+        private final String name_;
+
+        private final AutoCloseable task_;
+
+        Named(final String name, final AutoCloseable task) {
+            name_ = name;
+            task_ = task;
+        }
+
+        @Override
+        public void close() throws Exception {
+            task_.close();
+        }
+
+        @Override
+        public String toString() {
+            return name_;
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class ListenerGroupCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addConcurrent(new Named("1", () -> add("1")));
+            teardown.addConcurrent(new Named("2", () -> add("2")));
+            teardown.addExecutor(Executors.newFixedThreadPool(1));
+            teardown.allocateDirect(16);
+            teardown.createTempDirectory("listener");
+            teardown.addInProcess(new Named("3", () -> add("3")));
+        }
+
+        private static void add(final String message) {
+            synchronized (messages) {
+                messages.add(message);
+            }
+        }
+
+    }
+
+    public static class RecordingListener implements TeardownListener {
+
+        @Override
+        public void registered(final String scopeId, final Object task) {
+            assertThat(scopeId, is(notNullValue()));
+            add("registered:" + name(task));
+        }
+
+        @Override
+        public void closing(final String scopeId, final Object task) {
+            add("closing:" + name(task));
+        }
+
+        @Override
+        public void closed(final String scopeId, final Object task, final long durationNanos) {
+            add("closed:" + name(task));
+        }
+
+        @Override
+        public void failed(final String scopeId, final Object task, final long durationNanos,
+                final Exception exception) {
+            add("failed:" + exception.getMessage());
+        }
+
+        private static String name(final Object task) {
+            return task instanceof Named ? task.toString() : task.getClass().getSimpleName();
+        }
+
+        // concurrent teardown objects are reported from teardown threads.
+        private static void add(final String message) {
+            synchronized (messages) {
+                messages.add(message);
+            }
+        }
+
+    }
+
+    public static class ThrowingListener implements TeardownListener {
+
+        @Override
+        public void closed(final String scopeId, final Object task, final long durationNanos) {
+            throw new IllegalStateException("closed:" + task);
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class InProcessCase {
+
+        @BeforeAll
+        static void beforeAll(final TeardownRegistry teardown) {
+            teardown.addInProcess(() -> messages.add("static-inProcess"));
+            teardown.add(() -> messages.add("static-external"));
+        }
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addInProcess(() -> messages.add("test-inProcess"));
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class SessionScopeCase {
+
+        @BeforeAll
+        static void beforeAll(@SessionScope final TeardownRegistry sessionTeardown,
+                final TeardownRegistry teardown) {
+            sessionTeardown.addInProcess(() -> messages.add("session-inProcess"));
+            sessionTeardown.add(() -> messages.add("session-external"));
+            teardown.addInProcess(() -> messages.add("static-inProcess"));
+        }
+
+        @Test
+        void test1() throws Exception {
+        }
+
+    }
+
+    @UsedFromTest
+    static class LaterCase {
+
+        @Test
+        void test1() throws Exception {
+            messages.add("later");
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    @TestMethodOrder(MethodOrderer.MethodName.class) // make the test method execution order deterministic.
+    static class BudgetCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.add(() -> messages.add("1"));
+            teardown.add(() -> messages.add("2"));
+            teardown.add(() -> messages.add("3"));
+        }
+
+        @Test
+        void test2(final TeardownRegistry teardown) throws Exception {
+            teardown.add(() -> messages.add("1"));
+            teardown.add(() -> messages.add("2"));
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    @TestMethodOrder(MethodOrderer.MethodName.class) // make the test method execution order deterministic.
+    static class FileDescriptorCase {
+
+        private static InputStream leaked;
+
+        @Test
+        void test1() throws Exception {
+            final Path file = Files.createTempFile("fd", ".txt");
+            leaked = Files.newInputStream(file);
+            Files.delete(file);
+        }
+
+        @Test
+        void test2() throws Exception {
+            leaked.close();
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    @TestMethodOrder(MethodOrderer.MethodName.class) // make the test method execution order deterministic.
+    static class NestedCase {
+
+        @BeforeAll
+        static void beforeAll(final TeardownRegistry teardown) {
+            teardown.add(() -> messages.add("outer"));
+        }
+
+        @Test
+        void test0(final TeardownRegistry teardown) throws Exception {
+            teardown.add(() -> messages.add("test0"));
+        }
+
+        @Nested
+        @TestMethodOrder(MethodOrderer.MethodName.class)
+        class Group {
+
+            @ContainerScope
+            TeardownRegistry group_;
+
+            @Test
+            void test1(final TeardownRegistry teardown, @ContainerScope final TeardownRegistry group)
+                    throws Exception {
+                assertThat(group, is(sameInstance(group_)));
+                group_.add(() -> messages.add("group-parameter"));
+                group_.add(() -> messages.add("group-field"));
+                teardown.add(() -> messages.add("test1"));
+            }
+
+            @Test
+            void test2(final TeardownRegistry teardown) throws Exception {
+                teardown.add(() -> messages.add("test2"));
+            }
+
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class LazyCase {
+
+        private Supplier<Named> used_;
+
+        private Supplier<Named> unused_;
+
+        @BeforeEach
+        void setUp(final TeardownRegistry teardown) {
+            used_ = teardown.lazy(() -> {
+                messages.add("create-used");
+                return new Named("used", () -> messages.add("close-used"));
+            });
+            unused_ = teardown.lazy(() -> {
+                messages.add("create-unused");
+                return new Named("unused", () -> messages.add("close-unused"));
+            });
+        }
+
+        @Test
+        void test1() throws Exception {
+            assertThat(used_.get(), is(sameInstance(used_.get())));
+            messages.add("test");
+        }
+
+    }
+
     @UsedFromTest
     @ExtendWith(TeardownExtension.class)
     @TestMethodOrder(MethodOrderer.MethodName.class) // make the test method execution order deterministic.
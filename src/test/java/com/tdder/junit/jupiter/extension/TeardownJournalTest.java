@@ -0,0 +1,150 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class TeardownJournalTest {
+
+    private static final List<String> messages = new ArrayList<>();
+
+    private Path directory_;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        messages.clear();
+        directory_ = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletePath.of(directory_).close();
+    }
+
+    @Test
+    void reap_pendingEntriesOfCrashedRun() throws Exception {
+        // Setup
+        final TeardownJournal journal = TeardownJournal.open(directory_);
+        journal.append(new Message("1"));
+        final int done = journal.append(new Message("2"));
+        journal.append(new Message("3"));
+        journal.markDone(done);
+        assertThat(journal.pendingCount(), is(2));
+
+        // a copy is not locked, as if its owner was killed.
+        Files.copy(journal.path(), directory_.resolve("crashed" + TeardownJournal.FILE_SUFFIX),
+                StandardCopyOption.COPY_ATTRIBUTES);
+
+        // Exercise
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+        TeardownJournal.reap(directory_, exceptionHandler);
+
+        // Verify
+        exceptionHandler.throwIfNeeded();
+        assertThat(messages, is(contains("1", "3")));
+        // the live journal is locked, so only the copy is reaped.
+        assertThat(journalFiles(), is(contains(journal.path())));
+
+        journal.close();
+        assertThat(journalFiles(), is(empty()));
+    }
+
+    @Test
+    void addDurable() throws Exception {
+        final TestExecutionSummary summary = runTest(Durable.class,
+                Collections.singletonMap(TeardownExtension.JOURNAL_DIRECTORY_PROPERTY_NAME, directory_.toString()));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(messages, is(contains("2", "1")));
+        // journal is removed at the end of the run.
+        assertThat(journalFiles(), is(empty()));
+    }
+
+    @Test
+    void reap_rejectsClassesOtherThanTeardownObjectsAndValues() throws Exception {
+        final TeardownJournal journal = TeardownJournal.open(directory_);
+        journal.append(new Unsafe());
+        journal.append(new Message("1"));
+        Files.copy(journal.path(), directory_.resolve("crashed" + TeardownJournal.FILE_SUFFIX));
+        journal.close();
+
+        final ExceptionHandler exceptionHandler = new ExceptionHandler.CollectStrategy();
+        TeardownJournal.reap(directory_, exceptionHandler);
+
+        final Exception e = assertThrows(InvalidClassException.class, exceptionHandler::throwIfNeeded);
+        assertThat(e.getMessage(), containsString(ArrayList.class.getName()));
+        assertThat(messages, is(contains("1")));
+    }
+
+    private List<Path> journalFiles() throws Exception {
+        try (Stream<Path> stream = Files.list(directory_)) {
+            return stream.collect(Collectors.toList());
+        }
+    }
+
+    static class Message implements AutoCloseable, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String message_;
+
+        Message(final String message) {
+            message_ = message;
+        }
+
+        @Override
+        public void close() {
+            messages.add(message_);
+        }
+
+    }
+
+    static class Unsafe implements AutoCloseable, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> values_ = new ArrayList<>();
+
+        @Override
+        public void close() {
+            messages.add("unsafe " + values_);
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class Durable {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addDurable(new Message("1"));
+            teardown.addDurable(new Message("2"));
+        }
+
+    }
+
+}
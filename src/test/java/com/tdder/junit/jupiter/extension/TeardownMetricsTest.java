@@ -0,0 +1,131 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class TeardownMetricsTest {
+
+    @Test
+    void bucket() throws Exception {
+        assertThat(TeardownMetrics.bucket(0L), is(0));
+        assertThat(TeardownMetrics.bucket(1L), is(0));
+        assertThat(TeardownMetrics.bucket(2L), is(1));
+        assertThat(TeardownMetrics.bucket(1023L), is(9));
+        assertThat(TeardownMetrics.bucket(1024L), is(10));
+        assertThat(TeardownMetrics.bucket(Long.MAX_VALUE), is(62));
+    }
+
+    @Test
+    void counts() throws Exception {
+        final TeardownMetrics metrics = new TeardownMetrics();
+
+        metrics.registered("a", "1");
+        metrics.registered("a", "2");
+        metrics.registered("b", "3");
+        metrics.closed("a", "2", 1500L);
+        metrics.failed("b", "3", 3000L, new RuntimeException());
+
+        assertThat(metrics.getRegistrations(), is(3L));
+        assertThat(metrics.getCloses(), is(1L));
+        assertThat(metrics.getFailures(), is(1L));
+        assertThat(metrics.getOpenTasksPerScope(), is(Collections.singletonMap("a", 1L)));
+        assertThat(metrics.getCloseDurationHistogram()[10], is(1L));
+        assertThat(metrics.getCloseDurationHistogram()[11], is(1L));
+    }
+
+    @Test
+    void teardownEnded() throws Exception {
+        final TeardownMetrics metrics = new TeardownMetrics();
+
+        metrics.registered("a", "1");
+        metrics.registered("a", "2");
+        metrics.registered("b", "3");
+        metrics.closed("a", "2", 1500L);
+        metrics.teardownEnded("a");
+
+        assertThat(metrics.getOpenTasksPerScope(), is(Collections.singletonMap("b", 1L)));
+    }
+
+    @Test
+    void mbean() throws Exception {
+        final TestExecutionSummary summary = runTest(Registered.class,
+                Collections.singletonMap(TeardownExtension.JMX_ENABLED_PROPERTY_NAME, "true"));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final long closes = (Long) server.getAttribute(new ObjectName(TeardownMetrics.OBJECT_NAME), "Closes");
+        assertThat(closes >= 2L, is(true));
+    }
+
+    /*
+     * Members of concurrent groups, and teardown objects discarded by fast exit do not leave open scopes.
+     */
+    @Test
+    void mbean_noOpenScopesLeft() throws Exception {
+        final Map<String, String> configurationParameters = new HashMap<>();
+        configurationParameters.put(TeardownExtension.JMX_ENABLED_PROPERTY_NAME, "true");
+        configurationParameters.put(TeardownExtension.FAST_EXIT_PROPERTY_NAME, "true");
+        final TestExecutionSummary summary = runTest(Discarded.class, configurationParameters);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        @SuppressWarnings("unchecked")
+        final Map<String, Long> openTasks = (Map<String, Long>) server.getAttribute(
+                new ObjectName(TeardownMetrics.OBJECT_NAME), "OpenTasksPerScope");
+        for (final String scopeId : openTasks.keySet()) {
+            assertThat(scopeId, not(containsString(Discarded.class.getSimpleName())));
+        }
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class Discarded {
+
+        @BeforeAll
+        static void beforeAll(final TeardownRegistry teardown) {
+            teardown.addInProcess(() -> {
+            });
+        }
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addConcurrent(() -> {
+            });
+            teardown.addConcurrent(() -> {
+            });
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class Registered {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.add(() -> {
+            });
+            teardown.add(() -> {
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class TeardownRegistryProcessorTest {
+
+    private Path directory_;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory_ = Files.createTempDirectory("processor");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletePath.of(directory_).close();
+    }
+
+    @Test
+    void generatedInjectorIsUsed() throws Exception {
+        write("sample/Base.java",
+                "package sample;",
+                "public class Base {",
+                "    private com.tdder.junit.jupiter.extension.TeardownRegistry baseTeardown_;",
+                "    protected com.tdder.junit.jupiter.extension.TeardownRegistry baseTeardown() {",
+                "        return baseTeardown_;",
+                "    }",
+                "}");
+        write("sample/SampleTest.java",
+                "package sample;",
+                "import static org.junit.jupiter.api.Assertions.assertNotNull;",
+                "import static org.junit.jupiter.api.Assertions.assertSame;",
+                "import com.tdder.junit.jupiter.extension.TeardownExtension;",
+                "import com.tdder.junit.jupiter.extension.TeardownRegistry;",
+                "import org.junit.jupiter.api.Test;",
+                "import org.junit.jupiter.api.extension.ExtendWith;",
+                "@ExtendWith(TeardownExtension.class)",
+                "public class SampleTest extends Base {",
+                "    static TeardownRegistry staticTeardown_;",
+                "    TeardownRegistry teardown_;",
+                "    @Test",
+                "    void test() {",
+                "        assertNotNull(staticTeardown_);",
+                "        assertNotNull(teardown_);",
+                "        assertSame(teardown_, baseTeardown());",
+                "    }",
+                "}");
+
+        final Path classes = compile();
+
+        assertThat(Files.exists(classes.resolve("sample/SampleTest_TeardownRegistryInjector.class")), is(true));
+        // private field can not be set by generated code
+        assertThat(Files.exists(classes.resolve("sample/Base_TeardownRegistryInjector.class")), is(false));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+                getClass().getClassLoader())) {
+            final Class<?> testClass = classLoader.loadClass("sample.SampleTest");
+            final List<String> injectors = TeardownExtension.injectors(testClass).stream()
+                    .map(injector -> injector.getClass().getName())
+                    .collect(Collectors.toList());
+            assertThat(injectors, is(contains(ReflectiveInjector.class.getName(),
+                    "sample.SampleTest_TeardownRegistryInjector")));
+
+            final TestExecutionSummary summary = runTest(testClass);
+
+            assertEquals(0, summary.getTestsFailedCount());
+            assertEquals(1, summary.getTestsSucceededCount());
+        }
+    }
+
+    /*
+     * The processor visits every type of a compilation, so it runs only when it is named explicitly.
+     */
+    @Test
+    void notDiscoveredFromClasspath() throws Exception {
+        write("sample/SampleTest.java",
+                "package sample;",
+                "import com.tdder.junit.jupiter.extension.TeardownRegistry;",
+                "public class SampleTest {",
+                "    TeardownRegistry teardown_;",
+                "}");
+
+        final Path classes = directory_.resolve("classes");
+        TestCompiler.compile(directory_.resolve("src"), classes, Arrays.asList(TeardownExtension.class, Test.class));
+
+        assertThat(Files.exists(classes.resolve("sample/SampleTest.class")), is(true));
+        assertThat(Files.exists(classes.resolve("sample/SampleTest_TeardownRegistryInjector.class")), is(false));
+    }
+
+    private void write(final String path, final String... lines) throws Exception {
+        final Path file = directory_.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private Path compile() throws Exception {
+        final Path classes = directory_.resolve("classes");
+        TestCompiler.compile(directory_.resolve("src"), classes, Arrays.asList(TeardownExtension.class, Test.class),
+                "-processor", TeardownRegistryProcessor.class.getName());
+        return classes;
+    }
+
+}
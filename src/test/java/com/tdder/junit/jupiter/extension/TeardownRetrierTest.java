@@ -0,0 +1,85 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class TeardownRetrierTest {
+
+    private static final AtomicInteger attempts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        attempts.set(0);
+    }
+
+    @Test
+    void delayIsDoubled() throws Exception {
+        final RetryPolicy policy = RetryPolicy.of(5, Duration.ofMillis(10));
+
+        assertThat(policy.delayNanos(1), is(Duration.ofMillis(10).toNanos()));
+        assertThat(policy.delayNanos(2), is(Duration.ofMillis(20).toNanos()));
+        assertThat(policy.delayNanos(3), is(Duration.ofMillis(40).toNanos()));
+        // not overflow
+        assertThat(RetryPolicy.of(100, Duration.ofDays(1)).delayNanos(99) > 0L, is(true));
+    }
+
+    @Test
+    void transientFailure() throws Exception {
+        final TestExecutionSummary summary = runTest(TransientCase.class);
+
+        assertEquals(0, summary.getFailures().size());
+        assertThat(attempts.get(), is(3));
+    }
+
+    @Test
+    void exhausted() throws Exception {
+        final TestExecutionSummary summary = runTest(ExhaustedCase.class);
+
+        // the test itself succeeds, and the container reports the failure.
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertEquals(1, summary.getFailures().size());
+        assertThat(attempts.get(), is(3));
+        final Throwable failure = summary.getFailures().get(0).getException();
+        assertThat(failure.getMessage(), is("attempt 1"));
+        assertThat(failure.getSuppressed().length, is(2));
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class TransientCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addRetrying(RetryPolicy.of(5, Duration.ofMillis(10)), () -> {
+                if (attempts.incrementAndGet() < 3) {
+                    throw new IllegalStateException("locked");
+                }
+            });
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class ExhaustedCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            teardown.addRetrying(RetryPolicy.of(3, Duration.ofMillis(10)), () -> {
+                throw new IllegalStateException("attempt " + attempts.incrementAndGet());
+            });
+        }
+
+    }
+
+}
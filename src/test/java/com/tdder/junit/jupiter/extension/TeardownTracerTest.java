@@ -0,0 +1,125 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class TeardownTracerTest {
+
+    private Path directory_;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        directory_ = Files.createTempDirectory("trace");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DeletePath.of(directory_).close();
+    }
+
+    @Test
+    void traceEngineExecution() throws Exception {
+        final TestExecutionSummary summary = runTest(TracedCase.class, Collections.singletonMap(
+                TeardownExtension.TRACE_DIRECTORY_PROPERTY_NAME, directory_.toString()));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        final List<TeardownTraceDecoder.Record> records = TeardownTraceDecoder.read(traceFile());
+        final List<String> events = records.stream()
+                .filter(r -> r.type().equals(Task.class.getName()))
+                .map(TeardownTraceDecoder.Record::event)
+                .collect(Collectors.toList());
+        assertThat(events, is(contains("registered", "closing", "closed")));
+        assertThat(records.get(0).scope(), containsString("test1"));
+
+        final StringWriter csv = new StringWriter();
+        TeardownTraceDecoder.writeCsv(records, csv);
+        assertThat(csv.toString(),
+                startsWith("sequence,timestampNanos,threadId,event,scope,type,task,durationNanos\n"));
+        final StringWriter json = new StringWriter();
+        TeardownTraceDecoder.writeChromeTrace(records, json);
+        assertThat(json.toString(), containsString("\"name\":\"" + Task.class.getName() + "\",\"cat\":\"closed\","
+                + "\"ph\":\"X\""));
+    }
+
+    @Test
+    void oldestRecordsAreOverwritten() throws Exception {
+        final TeardownTracer tracer = TeardownTracer.open(directory_, 2);
+        tracer.registered("scope", new Task());
+        tracer.closing("scope", new Task());
+        tracer.closed("scope", new Task(), 1L);
+        tracer.close();
+
+        final List<String> events = TeardownTraceDecoder.read(tracer.path()).stream()
+                .map(TeardownTraceDecoder.Record::event)
+                .collect(Collectors.toList());
+        assertThat(events, is(contains("closing", "closed")));
+    }
+
+    @Test
+    void sequentialTaskIds() throws Exception {
+        final TeardownTracer tracer = TeardownTracer.open(directory_, 16);
+        final Task first = new Task();
+        final Task second = new Task();
+        tracer.registered("scope", first);
+        tracer.registered("scope", second);
+        tracer.closing("scope", second);
+        tracer.closed("scope", second, 1L);
+        tracer.closing("scope", first);
+        tracer.failed("scope", first, 1L, new RuntimeException());
+        // a closed task is forgotten, so it gets a new id.
+        tracer.closing("scope", first);
+        tracer.close();
+
+        final List<Integer> tasks = TeardownTraceDecoder.read(tracer.path()).stream()
+                .map(TeardownTraceDecoder.Record::task)
+                .collect(Collectors.toList());
+        assertThat(tasks, is(contains(1, 2, 2, 2, 1, 1, 3)));
+    }
+
+    private Path traceFile() throws Exception {
+        try (Stream<Path> files = Files.list(directory_)) {
+            final List<Path> traces = files.collect(Collectors.toList());
+            assertThat(traces.size(), is(1));
+            return traces.get(0);
+        }
+    }
+
+    static class Task implements AutoCloseable {
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class TracedCase {
+
+        @Test
+        void test1(final TeardownRegistry teardown) {
+            teardown.add(new Task());
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class TempDirectoryTest {
+
+    private static Path createdDirectory;
+
+    @BeforeEach
+    void setUp() {
+        createdDirectory = null;
+    }
+
+    @Test
+    void deletedAfterTest() throws Exception {
+        final TestExecutionSummary summary = runTest(CreateTempDirectory.class);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(Files.exists(createdDirectory), is(false));
+    }
+
+    @Test
+    void deletedInBackground() throws Exception {
+        final TestExecutionSummary summary = runTest(CreateTempDirectory.class, Collections.singletonMap(
+                TeardownExtension.TEMP_DIRECTORY_DELETE_IN_BACKGROUND_PROPERTY_NAME, "true"));
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // background deletion is completed at the end of the engine execution.
+        assertThat(Files.exists(createdDirectory), is(false));
+        assertThat(Files.exists(createdDirectory.resolveSibling(createdDirectory.getFileName() + ".deleting")),
+                is(false));
+    }
+
+    @Test
+    void deletePath() throws Exception {
+        final Path root = Files.createTempDirectory("delete-path");
+        DeleteTreeBenchmark.createTree(root, 3, 4, 5);
+
+        DeletePath.of(root).close();
+
+        assertThat(Files.exists(root), is(false));
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class CreateTempDirectory {
+
+        @Test
+        void test1(final TeardownRegistry teardown) throws Exception {
+            final Path dir = teardown.createTempDirectory("test");
+            createdDirectory = dir;
+            DeleteTreeBenchmark.createTree(dir, 2, 3, 3);
+            assertThat(Files.isDirectory(dir), is(true));
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.tdder.junit.jupiter.extension;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles Java sources generated by tests.
+ */
+class TestCompiler {
+
+    /**
+     * @param sourceDirectory directory of {@code .java} files
+     * @param classesDirectory output directory
+     * @param classpath classes whose jars or directories are put on the classpath
+     * @param options additional javac options
+     */
+    static void compile(final Path sourceDirectory, final Path classesDirectory, final List<Class<?>> classpath,
+            final String... options) throws Exception {
+        Files.createDirectories(classesDirectory);
+        final List<String> arguments = new ArrayList<>(Arrays.asList(
+                "-classpath", classpath(classpath),
+                "-d", classesDirectory.toString()));
+        arguments.addAll(Arrays.asList(options));
+        try (Stream<Path> sources = Files.walk(sourceDirectory)) {
+            sources.filter(p -> p.toString().endsWith(".java")).forEach(p -> arguments.add(p.toString()));
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Compilation failed: " + sourceDirectory);
+        }
+    }
+
+    private static String classpath(final List<Class<?>> classes) throws Exception {
+        final List<String> entries = new ArrayList<>();
+        for (final Class<?> c : classes) {
+            entries.add(Paths.get(c.getProtectionDomain().getCodeSource().getLocation().toURI()).toString());
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+}
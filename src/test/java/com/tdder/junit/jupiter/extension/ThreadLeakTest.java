@@ -0,0 +1,148 @@
+package com.tdder.junit.jupiter.extension;
+
+import static com.tdder.junit.jupiter.extension.JUnitRunner.runTest;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+class ThreadLeakTest {
+
+    private static final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+    private static CountDownLatch interrupted;
+
+    private static final List<ForkJoinPool> pools = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        threads.clear();
+        pools.clear();
+        interrupted = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (final ForkJoinPool pool : pools) {
+            pool.shutdownNow();
+        }
+        for (final Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    void report() throws Exception {
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        final TestExecutionSummary summary = runTest(ThreadCase.class,
+                Collections.singletonMap(TeardownExtension.THREAD_LEAK_PROPERTY_NAME, "report"), recorder);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // the short-lived thread ends within the grace period, and the leaked thread is reported once.
+        assertThat(recorder.values(ThreadLeakDetector.REPORT_KEY), contains(startsWith("leaked (")));
+        assertThat(interrupted.getCount(), is(1L));
+    }
+
+    @Test
+    void interrupt() throws Exception {
+        final Map<String, String> config = new HashMap<>();
+        config.put(TeardownExtension.THREAD_LEAK_PROPERTY_NAME, "interrupt");
+        config.put(TeardownExtension.THREAD_LEAK_GRACE_PERIOD_PROPERTY_NAME, "1000");
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        final TestExecutionSummary summary = runTest(ThreadCase.class, config, recorder);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        assertThat(recorder.values(ThreadLeakDetector.REPORT_KEY), contains(startsWith("leaked (")));
+        assertThat(interrupted.await(10, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    void ownThreadsAreKnownByReference() throws Exception {
+        final ReportEntryRecorder recorder = new ReportEntryRecorder();
+        final TestExecutionSummary summary = runTest(ThreadNameCase.class,
+                Collections.singletonMap(TeardownExtension.THREAD_LEAK_PROPERTY_NAME, "report"), recorder);
+
+        assertEquals(0, summary.getTestsFailedCount());
+        assertEquals(1, summary.getTestsSucceededCount());
+        // a name like the threads of this extension does not hide a leak. fork/join workers are not reported.
+        assertThat(recorder.values(ThreadLeakDetector.REPORT_KEY), contains(startsWith("teardown-leaked (")));
+    }
+
+    @Test
+    void interrupt_parallelExecution() throws Exception {
+        final Map<String, String> config = new HashMap<>();
+        config.put(TeardownExtension.THREAD_LEAK_PROPERTY_NAME, "interrupt");
+        config.put("junit.jupiter.execution.parallel.enabled", "true");
+        final TestExecutionSummary summary = runTest(ThreadCase.class, config);
+
+        assertEquals(0, summary.getTestsSucceededCount());
+        assertThat(summary.getFailures().get(0).getException().getMessage(),
+                containsString("junit.jupiter.execution.parallel.enabled"));
+        assertThat(interrupted.getCount(), is(1L));
+    }
+
+    private static void start(final String name, final long millis) {
+        final Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (final InterruptedException e) {
+                interrupted.countDown();
+            }
+        }, name);
+        threads.add(thread);
+        thread.start();
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class ThreadNameCase {
+
+        @Test
+        void test1() throws Exception {
+            start("teardown-leaked", 60_000L);
+            final ForkJoinPool pool = new ForkJoinPool(1);
+            pools.add(pool);
+            pool.submit(() -> {
+                try {
+                    Thread.sleep(60_000L);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+    }
+
+    @UsedFromTest
+    @ExtendWith(TeardownExtension.class)
+    static class ThreadCase {
+
+        @Test
+        void test1() throws Exception {
+            start("shortLived", 10L);
+            start("leaked", 60_000L);
+        }
+
+    }
+
+}